@@ -0,0 +1,256 @@
+package com.reginald.swiperefresh;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.RadialGradient;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Region;
+import android.graphics.Shader;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.View;
+
+import java.lang.reflect.Field;
+
+
+public class CustomSwipeProgressBarTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 8;
+    private static final long CYCLE_NANOS = 2000 * 1000000L;
+    // a quarter into the second cycle, the first one is drawn with circles
+    private static final long LATER_CYCLE_NANOS = CYCLE_NANOS + CYCLE_NANOS / 4;
+
+    private CustomSwipeProgressBar mProgressBar;
+    private RecordingCanvas mCanvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final View parent = new View(getInstrumentation().getTargetContext());
+        mProgressBar = new CustomSwipeProgressBar(parent, new FrameClock(parent));
+        mProgressBar.setBounds(0, 0, WIDTH, HEIGHT);
+        mCanvas = new RecordingCanvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    @UiThreadTest
+    public void testCirclesDrawOneCirclePerColor() {
+        mProgressBar.start();
+        mProgressBar.draw(mCanvas);
+        // the background, then the circles of colors 1 and 2 at the start of the cycle
+        assertEquals(1, mCanvas.mColorCount);
+        assertEquals(2, mCanvas.mCircleCount);
+        assertEquals(0, mCanvas.mRectCount);
+    }
+
+    @UiThreadTest
+    public void testShaderKeepsTheCirclesOfTheFirstCycle() {
+        mProgressBar.setUseShader(true);
+        mProgressBar.start();
+        mProgressBar.draw(mCanvas);
+        assertEquals(1, mCanvas.mColorCount);
+        assertEquals(2, mCanvas.mCircleCount);
+        assertEquals(0, mCanvas.mRectCount);
+    }
+
+    @UiThreadTest
+    public void testShaderDrawsOneRect() throws Exception {
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        assertEquals(1, mCanvas.mRectCount);
+        assertEquals(0, mCanvas.mCircleCount);
+        assertEquals(0, mCanvas.mColorCount);
+        assertTrue(mCanvas.mLastShader instanceof RadialGradient);
+    }
+
+    @UiThreadTest
+    public void testShaderIsMovedOntoTheBar() throws Exception {
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        final Matrix matrix = new Matrix();
+        assertTrue(mCanvas.mLastShader.getLocalMatrix(matrix));
+        final float[] values = new float[9];
+        matrix.getValues(values);
+        // centered on the bar, with the half width as the unit radius
+        assertEquals(WIDTH / 2f, values[Matrix.MTRANS_X], 0f);
+        assertEquals(HEIGHT / 2f, values[Matrix.MTRANS_Y], 0f);
+        assertEquals(WIDTH / 2f, values[Matrix.MSCALE_X], 0f);
+        assertEquals(WIDTH / 2f, values[Matrix.MSCALE_Y], 0f);
+    }
+
+    @UiThreadTest
+    public void testShaderIsReusedForTheSameStep() throws Exception {
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        final Shader shader = mCanvas.mLastShader;
+        mProgressBar.draw(mCanvas);
+        assertEquals(2, mCanvas.mRectCount);
+        assertSame(shader, mCanvas.mLastShader);
+        // the same step of the next cycle
+        setElapsed(LATER_CYCLE_NANOS + CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        assertSame(shader, mCanvas.mLastShader);
+    }
+
+    @UiThreadTest
+    public void testShaderStepsFollowTheFrameRate() throws Exception {
+        // one step every 50 ms, below the refresh rate of any display
+        final long stepNanos = 50 * 1000000L;
+        mProgressBar.setFrameRate(20);
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        final Shader shader = mCanvas.mLastShader;
+        setElapsed(LATER_CYCLE_NANOS + stepNanos - 1);
+        mProgressBar.draw(mCanvas);
+        assertSame(shader, mCanvas.mLastShader);
+        setElapsed(LATER_CYCLE_NANOS + stepNanos);
+        mProgressBar.draw(mCanvas);
+        assertNotSame(shader, mCanvas.mLastShader);
+    }
+
+    @UiThreadTest
+    public void testShaderLooksLikeTheCircles() throws Exception {
+        // steps of 50 ms, the quarters of the cycle start a step, where both ways
+        // draw the same time
+        mProgressBar.setFrameRate(20);
+        assertShaderLooksLikeTheCircles(CYCLE_NANOS);
+        assertShaderLooksLikeTheCircles(CYCLE_NANOS + CYCLE_NANOS / 4);
+        assertShaderLooksLikeTheCircles(CYCLE_NANOS + CYCLE_NANOS / 2);
+        assertShaderLooksLikeTheCircles(CYCLE_NANOS + CYCLE_NANOS * 3 / 4);
+    }
+
+    @UiThreadTest
+    public void testShaderIsRebuiltForNewColors() throws Exception {
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.draw(mCanvas);
+        final Shader shader = mCanvas.mLastShader;
+        mProgressBar.setColorScheme(0xFFFF0000, 0xFF00FF00, 0xFF0000FF, 0xFFFFFF00);
+        mProgressBar.draw(mCanvas);
+        assertNotSame(shader, mCanvas.mLastShader);
+    }
+
+    @UiThreadTest
+    public void testFinishClipsInsteadOfLayer() throws Exception {
+        mProgressBar.setUseShader(true);
+        startAt(LATER_CYCLE_NANOS);
+        mProgressBar.stop();
+        mProgressBar.draw(mCanvas);
+        assertEquals(1, mCanvas.mDifferenceClipCount);
+        assertEquals(0, mCanvas.mLayerCount);
+        assertEquals(1, mCanvas.mRectCount);
+    }
+
+    @UiThreadTest
+    public void testFinishWithoutShaderUsesLayer() {
+        mProgressBar.start();
+        mProgressBar.stop();
+        mProgressBar.draw(mCanvas);
+        assertEquals(0, mCanvas.mDifferenceClipCount);
+        assertEquals(1, mCanvas.mLayerCount);
+    }
+
+    /**
+     * Draws the frame at the given time of the animation with the shader then with
+     * the circles, and compares the pixels. The edges of the rings may round to
+     * either side, a few pixels per row can differ.
+     */
+    private void assertShaderLooksLikeTheCircles(long elapsedNanos) throws Exception {
+        final Bitmap shaderBitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        final Bitmap circlesBitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        startAt(elapsedNanos);
+        mProgressBar.setUseShader(true);
+        mProgressBar.draw(new Canvas(shaderBitmap));
+        mProgressBar.setUseShader(false);
+        mProgressBar.draw(new Canvas(circlesBitmap));
+        mProgressBar.stop();
+
+        int differentPixels = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (shaderBitmap.getPixel(x, y) != circlesBitmap.getPixel(x, y)) {
+                    differentPixels++;
+                }
+            }
+        }
+        // one pixel on each side of up to four ring edges
+        assertTrue(differentPixels + " pixels differ at " + elapsedNanos + " ns",
+                differentPixels <= HEIGHT * 8);
+    }
+
+    /**
+     * Start the animation, and draw it at the given time from then.
+     */
+    private void startAt(long elapsedNanos) throws Exception {
+        mProgressBar.start();
+        setElapsed(elapsedNanos);
+    }
+
+    /**
+     * Move the start of the animation back, so that the next draw is at the given
+     * time of the animation.
+     */
+    private void setElapsed(long elapsedNanos) throws Exception {
+        final Field frameTime = CustomSwipeProgressBar.class.getDeclaredField("mFrameTime");
+        final Field startTime = CustomSwipeProgressBar.class.getDeclaredField("mStartTime");
+        frameTime.setAccessible(true);
+        startTime.setAccessible(true);
+        startTime.setLong(mProgressBar, frameTime.getLong(mProgressBar) - elapsedNanos);
+    }
+
+    /**
+     * Counts the draw operations of the progress bar.
+     */
+    private static class RecordingCanvas extends Canvas {
+        int mColorCount;
+        int mCircleCount;
+        int mRectCount;
+        int mLayerCount;
+        int mDifferenceClipCount;
+        Shader mLastShader;
+
+        RecordingCanvas(Bitmap bitmap) {
+            super(bitmap);
+        }
+
+        @Override
+        public void drawColor(int color) {
+            mColorCount++;
+            super.drawColor(color);
+        }
+
+        @Override
+        public void drawCircle(float cx, float cy, float radius, Paint paint) {
+            mCircleCount++;
+            super.drawCircle(cx, cy, radius, paint);
+        }
+
+        @Override
+        public void drawRect(Rect r, Paint paint) {
+            mRectCount++;
+            mLastShader = paint.getShader();
+            super.drawRect(r, paint);
+        }
+
+        @Override
+        public int saveLayerAlpha(RectF bounds, int alpha, int saveFlags) {
+            mLayerCount++;
+            return super.saveLayerAlpha(bounds, alpha, saveFlags);
+        }
+
+        @Override
+        public boolean clipRect(RectF rect, Region.Op op) {
+            if (op == Region.Op.DIFFERENCE) {
+                mDifferenceClipCount++;
+            }
+            return super.clipRect(rect, op);
+        }
+    }
+}
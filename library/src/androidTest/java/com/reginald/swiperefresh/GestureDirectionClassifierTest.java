@@ -0,0 +1,70 @@
+package com.reginald.swiperefresh;
+
+import junit.framework.TestCase;
+
+
+public class GestureDirectionClassifierTest extends TestCase {
+
+    private static final int TOUCH_SLOP = 10;
+
+    private final GestureDirectionClassifier mClassifier = new GestureDirectionClassifier(TOUCH_SLOP);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mClassifier.reset(100, 100);
+    }
+
+    public void testUndecidedWithinTouchSlop() {
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(107, 107));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(110, 100));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.getAxis());
+    }
+
+    public void testClearlyHorizontal() {
+        // x distance more than twice the y distance
+        assertEquals(GestureDirectionClassifier.AXIS_HORIZONTAL, mClassifier.addSample(125, 110));
+    }
+
+    public void testClearlyVertical() {
+        // y distance at least the x distance
+        assertEquals(GestureDirectionClassifier.AXIS_VERTICAL, mClassifier.addSample(108, 92));
+        mClassifier.reset(100, 100);
+        assertEquals(GestureDirectionClassifier.AXIS_VERTICAL, mClassifier.addSample(110, 110));
+    }
+
+    public void testAmbiguousAngleWaitsForMoreSamples() {
+        // x distance exactly twice the y distance is not clearly horizontal
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(120, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(118, 110));
+    }
+
+    public void testAmbiguousAngleForcedToDominantAxis() {
+        // 1.8 times the y distance, decided as horizontal by the 1.5 ratio on the third sample
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(118, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(118, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_HORIZONTAL, mClassifier.addSample(118, 110));
+
+        // 1.4 times the y distance, forced to vertical
+        mClassifier.reset(100, 100);
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(114, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(114, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_VERTICAL, mClassifier.addSample(114, 110));
+    }
+
+    public void testSamplesWithinSlopDoNotCountAsAmbiguous() {
+        mClassifier.addSample(105, 103);
+        mClassifier.addSample(105, 103);
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(118, 110));
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.addSample(118, 110));
+    }
+
+    public void testAxisStaysLocked() {
+        assertEquals(GestureDirectionClassifier.AXIS_HORIZONTAL, mClassifier.addSample(125, 100));
+        assertEquals(GestureDirectionClassifier.AXIS_HORIZONTAL, mClassifier.addSample(100, 150));
+        mClassifier.lock(GestureDirectionClassifier.AXIS_VERTICAL);
+        assertEquals(GestureDirectionClassifier.AXIS_VERTICAL, mClassifier.addSample(150, 100));
+        mClassifier.reset(100, 100);
+        assertEquals(GestureDirectionClassifier.AXIS_UNDECIDED, mClassifier.getAxis());
+    }
+}
@@ -0,0 +1,83 @@
+package com.reginald.swiperefresh;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+
+public class HandOffFlingTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 1600;
+    // the trigger is at most 400 px below the top, 100 dp at 4x
+    private static final int PULL_DISTANCE = 1200;
+    private static final int STEP = 40;
+    // time between two touch events, in ms
+    private static final int EVENT_INTERVAL = 10;
+    // time of a frame, in ms
+    private static final int FRAME_INTERVAL = 16;
+
+    private CustomSwipeRefreshLayout mLayout;
+    private ScrollView mScrollView;
+    private long mDownTime;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final Context context = getInstrumentation().getTargetContext();
+        mLayout = new CustomSwipeRefreshLayout(context);
+        mLayout.setRefreshMode(CustomSwipeRefreshLayout.REFRESH_MODE_PULL);
+        mLayout.setKeepTopRefreshingHead(false);
+        mScrollView = new ScrollView(context);
+        mScrollView.addView(new View(context), new ViewGroup.LayoutParams(WIDTH, HEIGHT * 4));
+        mLayout.addView(mScrollView);
+        final FrameLayout parent = new FrameLayout(context);
+        parent.addView(mLayout);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    @UiThreadTest
+    public void testContentKeepsFlingingAfterHandOff() throws InterruptedException {
+        // pull the head past the trigger and release it, it starts refreshing and
+        // returns to the trigger position, which takes frames this test never runs
+        swipe(100, 100 + PULL_DISTANCE);
+        assertTrue(mLayout.isRefreshing());
+
+        // catch the head and swipe it up quickly past the top, the rest of the
+        // swipe is handed off to the content
+        swipe(100 + PULL_DISTANCE, 100);
+        final int scrollY = mScrollView.getScrollY();
+        assertTrue(scrollY > 0);
+
+        // one frame later, the fling started at ACTION_UP still scrolls the content
+        Thread.sleep(FRAME_INTERVAL);
+        mScrollView.computeScroll();
+        assertTrue(mScrollView.getScrollY() > scrollY);
+    }
+
+    private void swipe(int fromY, int toY) throws InterruptedException {
+        mDownTime = SystemClock.uptimeMillis();
+        dispatch(MotionEvent.ACTION_DOWN, fromY);
+        final int step = toY > fromY ? STEP : -STEP;
+        for (int y = fromY + step; step > 0 ? y <= toY : y >= toY; y += step) {
+            Thread.sleep(EVENT_INTERVAL);
+            dispatch(MotionEvent.ACTION_MOVE, y);
+        }
+        dispatch(MotionEvent.ACTION_UP, toY);
+    }
+
+    private void dispatch(int action, int y) {
+        final MotionEvent event = MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action,
+                WIDTH / 2, y, 0);
+        mLayout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
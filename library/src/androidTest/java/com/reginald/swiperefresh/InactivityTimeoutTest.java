@@ -0,0 +1,107 @@
+package com.reginald.swiperefresh;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+
+public class InactivityTimeoutTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    // a long and slow pull, that stays below the refresh trigger
+    private static final int MOVE_COUNT = 100;
+    private static final int TIMEOUT = 500;
+
+    private PostCountingLayout mLayout;
+    private long mDownTime;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final Context context = getInstrumentation().getTargetContext();
+        mLayout = new PostCountingLayout(context);
+        mLayout.setReturnToOriginalTimeout(TIMEOUT);
+        mLayout.addView(new View(context));
+        final FrameLayout parent = new FrameLayout(context);
+        parent.addView(mLayout);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    @UiThreadTest
+    public void testLongPullPostsTheTimeoutOnce() {
+        pull();
+        assertEquals(1, mLayout.mPostCount);
+        assertEquals(0, mLayout.mRemoveCount);
+    }
+
+    @UiThreadTest
+    public void testEarlyCheckWaitsForTheDeadline() {
+        pull();
+        final Runnable check = mLayout.mLastPosted;
+        assertNotNull(check);
+        // runs before the deadline moved by the last events, and waits for the rest of it
+        check.run();
+        assertEquals(2, mLayout.mPostCount);
+        assertSame(check, mLayout.mLastPosted);
+        assertTrue(mLayout.mLastDelay > 0 && mLayout.mLastDelay <= TIMEOUT);
+    }
+
+    private void pull() {
+        mDownTime = SystemClock.uptimeMillis();
+        boolean intercepted = mLayout.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, 0));
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            final MotionEvent move = event(MotionEvent.ACTION_MOVE, i);
+            if (intercepted) {
+                mLayout.onTouchEvent(move);
+            } else {
+                intercepted = mLayout.onInterceptTouchEvent(move);
+            }
+            move.recycle();
+        }
+        assertTrue(intercepted);
+    }
+
+    private MotionEvent event(int action, int y) {
+        return MotionEvent.obtain(mDownTime, mDownTime + y * 16, action, WIDTH / 2, 100 + y, 0);
+    }
+
+    /**
+     * Counts the messages the layout posts and removes.
+     */
+    private static class PostCountingLayout extends CustomSwipeRefreshLayout {
+        int mPostCount;
+        int mRemoveCount;
+        Runnable mLastPosted;
+        long mLastDelay;
+
+        PostCountingLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean post(Runnable action) {
+            return postDelayed(action, 0);
+        }
+
+        @Override
+        public boolean postDelayed(Runnable action, long delayMillis) {
+            mPostCount++;
+            mLastPosted = action;
+            mLastDelay = delayMillis;
+            return super.postDelayed(action, delayMillis);
+        }
+
+        @Override
+        public boolean removeCallbacks(Runnable action) {
+            mRemoveCount++;
+            return super.removeCallbacks(action);
+        }
+    }
+}
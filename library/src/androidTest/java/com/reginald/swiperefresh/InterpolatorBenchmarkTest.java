@@ -0,0 +1,65 @@
+package com.reginald.swiperefresh;
+
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+
+/**
+ * Times the lookup tables against the framework interpolators they replace,
+ * which call Math.pow() for these factors. Runs on the device, the numbers
+ * of the JVM say nothing about the runtime of the phone.
+ */
+public class InterpolatorBenchmarkTest extends InstrumentationTestCase {
+
+    private static final String TAG = "InterpolatorBenchmark";
+    private static final int ITERATIONS = 200000;
+    private static final int RUNS = 5;
+    // the input steps through [0, 1] like the fraction of an animation
+    private static final int INPUT_STEPS = 1000;
+
+    // keeps the results alive, so the loops are not optimized away
+    private float mSink;
+
+    public void testAccelerateTableIsFasterThanFramework() {
+        compare("accelerate(1.5)", LookupTableInterpolator.accelerate(1.5f),
+                new AccelerateInterpolator(1.5f));
+    }
+
+    public void testDecelerateTableIsFasterThanFramework() {
+        compare("decelerate(2)", LookupTableInterpolator.decelerate(2f),
+                new DecelerateInterpolator(2f));
+    }
+
+    private void compare(String name, Interpolator table, Interpolator framework) {
+        final long tableNanos = measure(table);
+        final long frameworkNanos = measure(framework);
+        Log.i(TAG, name + ": table " + (float) tableNanos / ITERATIONS + " ns, framework "
+                + (float) frameworkNanos / ITERATIONS + " ns per call");
+        assertTrue(name + " table is slower than the framework", tableNanos < frameworkNanos);
+    }
+
+    /**
+     * Returns the best time of several runs, after one run to warm up.
+     */
+    private long measure(Interpolator interpolator) {
+        run(interpolator);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            run(interpolator);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private void run(Interpolator interpolator) {
+        float sum = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            sum += interpolator.getInterpolation((float) (i % (INPUT_STEPS + 1)) / INPUT_STEPS);
+        }
+        mSink += sum;
+    }
+}
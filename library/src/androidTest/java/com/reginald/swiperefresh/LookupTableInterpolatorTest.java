@@ -0,0 +1,79 @@
+package com.reginald.swiperefresh;
+
+import android.view.animation.Interpolator;
+
+import junit.framework.TestCase;
+
+
+public class LookupTableInterpolatorTest extends TestCase {
+
+    private static final int SAMPLES = 1000;
+
+    public void testAccelerateMatchesCurve() {
+        final Interpolator interpolator = LookupTableInterpolator.accelerate(1.5f);
+        for (int i = 0; i <= SAMPLES; i++) {
+            final float input = (float) i / SAMPLES;
+            assertEquals(Math.pow(input, 3), interpolator.getInterpolation(input), 2e-4);
+        }
+    }
+
+    public void testDecelerateMatchesCurve() {
+        final Interpolator interpolator = LookupTableInterpolator.decelerate(2f);
+        for (int i = 0; i <= SAMPLES; i++) {
+            final float input = (float) i / SAMPLES;
+            assertEquals(1 - Math.pow(1 - input, 4), interpolator.getInterpolation(input), 2e-4);
+        }
+    }
+
+    public void testTablesAreSharedPerFactor() {
+        assertSame(LookupTableInterpolator.accelerate(1.5f), LookupTableInterpolator.accelerate(1.5f));
+        assertSame(LookupTableInterpolator.decelerate(2f), LookupTableInterpolator.decelerate(2f));
+        assertNotSame(LookupTableInterpolator.accelerate(1.5f), LookupTableInterpolator.accelerate(2f));
+        assertNotSame(LookupTableInterpolator.accelerate(2f), LookupTableInterpolator.decelerate(2f));
+    }
+
+    public void testInputIsClamped() {
+        final Interpolator interpolator = new LookupTableInterpolator(new float[]{0f, 0.25f, 1f});
+        assertEquals(0f, interpolator.getInterpolation(-0.5f), 0f);
+        assertEquals(1f, interpolator.getInterpolation(1.5f), 0f);
+    }
+
+    public void testValuesAreInterpolatedLinearly() {
+        final Interpolator interpolator = new LookupTableInterpolator(new float[]{0f, 0.25f, 1f});
+        assertEquals(0.125f, interpolator.getInterpolation(0.25f), 1e-6f);
+        assertEquals(0.25f, interpolator.getInterpolation(0.5f), 1e-6f);
+        assertEquals(0.625f, interpolator.getInterpolation(0.75f), 1e-6f);
+    }
+
+    public void testProgressBarTableMatchesBezier() {
+        final Interpolator interpolator = CustomSwipeProgressBar.CustomInterpolator.getInstance();
+        for (int i = 0; i <= SAMPLES; i++) {
+            final float input = (float) i / SAMPLES;
+            assertEquals(bezier(input), interpolator.getInterpolation(input), 3e-3);
+        }
+    }
+
+    /**
+     * @return y of the cubic bezier curve from (0, 0) to (1, 1) with the control
+     * points (0.4, 0) and (0.2, 1), at the given x.
+     */
+    private static double bezier(double x) {
+        // x(t) is increasing, find t by bisection
+        double low = 0;
+        double high = 1;
+        for (int i = 0; i < 50; i++) {
+            final double t = (low + high) / 2;
+            if (bezier(t, 0.4, 0.2) < x) {
+                low = t;
+            } else {
+                high = t;
+            }
+        }
+        return bezier((low + high) / 2, 0, 1);
+    }
+
+    private static double bezier(double t, double p1, double p2) {
+        final double u = 1 - t;
+        return 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t;
+    }
+}
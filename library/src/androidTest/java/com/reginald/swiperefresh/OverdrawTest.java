@@ -0,0 +1,155 @@
+package com.reginald.swiperefresh;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+
+public class OverdrawTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int HEAD_HEIGHT = 300;
+    private static final int MOVE_COUNT = 20;
+    private static final int MOVE_STEP = 10;
+
+    private CustomSwipeRefreshLayout mLayout;
+    private FrameLayout mParent;
+    private CountingView mHead;
+    private CountingView mContent;
+    private Canvas mCanvas;
+    private long mDownTime;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final Context context = getInstrumentation().getTargetContext();
+        mLayout = new CustomSwipeRefreshLayout(context);
+        mHead = new CountingView(context, HEAD_HEIGHT);
+        mLayout.setCustomHeadview(mHead);
+        mLayout.setReturnToOriginalTimeout(0);
+        mContent = new CountingView(context, 0);
+        mLayout.addView(mContent);
+        mParent = new FrameLayout(context);
+        mParent.addView(mLayout);
+        layout();
+        // the layout finds its content on the first touch, and skips the hidden head from then on
+        mDownTime = SystemClock.uptimeMillis();
+        mLayout.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, 0));
+        mLayout.onInterceptTouchEvent(event(MotionEvent.ACTION_UP, 0));
+        layout();
+        mHead.mMeasureCount = 0;
+        mContent.mDrawCount = 0;
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    @UiThreadTest
+    public void testHiddenHeadIsNotMeasuredNorDrawn() {
+        mParent.draw(mCanvas);
+        assertEquals(0, mHead.mMeasureCount);
+        assertEquals(0, mHead.mDrawCount);
+        assertEquals(1, mContent.mDrawCount);
+        assertEquals(HEIGHT, mContent.mClipBounds.height());
+    }
+
+    @UiThreadTest
+    public void testPullRequestsTheHeadMeasure() {
+        pull();
+        // measured by the next layout pass, never from the touch events
+        assertEquals(0, mHead.mMeasureCount);
+        assertTrue(mLayout.isLayoutRequested());
+        mParent.draw(mCanvas);
+        assertEquals(0, mHead.mDrawCount);
+
+        layout();
+        assertTrue(mHead.mMeasureCount > 0);
+        mParent.draw(mCanvas);
+        assertEquals(1, mHead.mDrawCount);
+    }
+
+    @UiThreadTest
+    public void testPulledChildrenDrawOnlyTheirVisiblePart() {
+        pull();
+        layout();
+        mParent.draw(mCanvas);
+        final int contentTop = mContent.getTop();
+        assertTrue(contentTop > 0 && contentTop < HEAD_HEIGHT);
+        assertEquals(contentTop, mHead.getBottom());
+        // the head only above the top edge of the content, the content only above the bottom edge
+        // of the layout, in the coordinates of each child
+        assertEquals(HEAD_HEIGHT - contentTop, mHead.mClipBounds.top);
+        assertEquals(HEAD_HEIGHT, mHead.mClipBounds.bottom);
+        assertEquals(0, mContent.mClipBounds.top);
+        assertEquals(HEIGHT - contentTop, mContent.mClipBounds.bottom);
+    }
+
+    private void layout() {
+        mParent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mParent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Pull the head down and keep holding it, below the refresh trigger.
+     */
+    private void pull() {
+        mDownTime = SystemClock.uptimeMillis();
+        boolean intercepted = mLayout.onInterceptTouchEvent(event(MotionEvent.ACTION_DOWN, 0));
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            final MotionEvent move = event(MotionEvent.ACTION_MOVE, i);
+            if (intercepted) {
+                mLayout.onTouchEvent(move);
+            } else {
+                intercepted = mLayout.onInterceptTouchEvent(move);
+            }
+            move.recycle();
+        }
+        assertTrue(intercepted);
+    }
+
+    private MotionEvent event(int action, int i) {
+        return MotionEvent.obtain(mDownTime, mDownTime + i * 16, action, WIDTH / 2, 100 + i * MOVE_STEP, 0);
+    }
+
+    /**
+     * Counts its measures and draws, and keeps the clip of its last draw. Fills the
+     * height it is given, unless it has a fixed one.
+     */
+    private static class CountingView extends View
+            implements CustomSwipeRefreshLayout.CustomSwipeRefreshHeadLayout {
+        private final int mHeight;
+        int mMeasureCount;
+        int mDrawCount;
+        final Rect mClipBounds = new Rect();
+
+        CountingView(Context context, int height) {
+            super(context);
+            mHeight = height;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec),
+                    mHeight > 0 ? mHeight : MeasureSpec.getSize(heightMeasureSpec));
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            mDrawCount++;
+            canvas.getClipBounds(mClipBounds);
+        }
+
+        @Override
+        public void onStateChange(CustomSwipeRefreshLayout.State currentState,
+                                  CustomSwipeRefreshLayout.State lastState) {
+        }
+    }
+}
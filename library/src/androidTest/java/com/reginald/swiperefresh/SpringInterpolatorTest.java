@@ -0,0 +1,81 @@
+package com.reginald.swiperefresh;
+
+import junit.framework.TestCase;
+
+
+public class SpringInterpolatorTest extends TestCase {
+
+    private static final float STIFFNESS = 400f;
+    private static final float DISTANCE = 100f;
+    private static final float THRESHOLD = 1f;
+
+    // step of the rest time search of the interpolator, in ms
+    private static final double SEARCH_STEP_MS = 1000 / 120.0;
+
+    private final SpringInterpolator mInterpolator = new SpringInterpolator();
+
+    public void testCriticallyDampedRestTime() {
+        mInterpolator.setUp(STIFFNESS, 1f, DISTANCE, 0, THRESHOLD);
+        // (1 + omega * t) * exp(-omega * t) reaches the threshold and stays below it
+        final double omega = Math.sqrt(STIFFNESS);
+        double low = 0;
+        double high = 5;
+        for (int i = 0; i < 50; i++) {
+            final double t = (low + high) / 2;
+            if ((1 + omega * t) * Math.exp(-omega * t) > THRESHOLD / DISTANCE) {
+                low = t;
+            } else {
+                high = t;
+            }
+        }
+        assertEquals(low * 1000, mInterpolator.getDuration(), SEARCH_STEP_MS + 1);
+    }
+
+    public void testCriticallyDampedDoesNotOvershoot() {
+        mInterpolator.setUp(STIFFNESS, 1f, DISTANCE, 0, THRESHOLD);
+        float last = 0;
+        for (int i = 0; i <= 1000; i++) {
+            final float value = mInterpolator.getInterpolation(i / 1000f);
+            assertTrue(value >= last);
+            assertTrue(value <= 1f);
+            last = value;
+        }
+    }
+
+    public void testUnderDampedOvershoot() {
+        final float dampingRatio = 0.5f;
+        mInterpolator.setUp(STIFFNESS, dampingRatio, DISTANCE, 0, THRESHOLD);
+        float max = 0;
+        for (int i = 0; i <= 10000; i++) {
+            max = Math.max(max, mInterpolator.getInterpolation(i / 10000f));
+        }
+        // peak overshoot of a spring released at rest
+        final double overshoot = Math.exp(-dampingRatio * Math.PI / Math.sqrt(1 - dampingRatio * dampingRatio));
+        assertEquals(1 + overshoot, max, 2e-3);
+    }
+
+    public void testStartsAndEndsAtRest() {
+        final float[] dampingRatios = new float[]{0.5f, 1f, 2f};
+        for (float dampingRatio : dampingRatios) {
+            mInterpolator.setUp(STIFFNESS, dampingRatio, DISTANCE, 0, THRESHOLD);
+            assertEquals(0f, mInterpolator.getInterpolation(0f), 1e-6f);
+            // just before the rest time, about the threshold away from the end
+            final float end = mInterpolator.getInterpolation(0.999f);
+            assertEquals(1f, end, 1.1f * THRESHOLD / DISTANCE);
+            assertEquals(1f, mInterpolator.getInterpolation(1f), 0f);
+        }
+    }
+
+    public void testVelocityTowardTheEndShortensTheMotion() {
+        mInterpolator.setUp(STIFFNESS, 2f, DISTANCE, 0, THRESHOLD);
+        final long atRest = mInterpolator.getDuration();
+        mInterpolator.setUp(STIFFNESS, 2f, DISTANCE, 1000, THRESHOLD);
+        assertTrue(mInterpolator.getDuration() < atRest);
+    }
+
+    public void testNoMotionWithinThreshold() {
+        mInterpolator.setUp(STIFFNESS, 1f, THRESHOLD / 2, 0, THRESHOLD);
+        assertEquals(0, mInterpolator.getDuration());
+        assertEquals(1f, mInterpolator.getInterpolation(0f), 0f);
+    }
+}
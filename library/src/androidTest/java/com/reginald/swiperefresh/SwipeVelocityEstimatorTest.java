@@ -0,0 +1,77 @@
+package com.reginald.swiperefresh;
+
+import junit.framework.TestCase;
+
+
+public class SwipeVelocityEstimatorTest extends TestCase {
+
+    private final SwipeVelocityEstimator mEstimator = new SwipeVelocityEstimator();
+
+    public void testConstantVelocity() {
+        for (long t = 0; t <= 70; t += 10) {
+            mEstimator.addSample(1000 + t, 5 + 2f * t);
+        }
+        assertTrue(mEstimator.computeEstimate());
+        assertEquals(2f, mEstimator.getVelocity(), 1e-3f);
+        assertEquals(0f, mEstimator.getAcceleration(), 1e-4f);
+    }
+
+    public void testConstantAcceleration() {
+        for (long t = 0; t <= 70; t += 10) {
+            mEstimator.addSample(1000 + t, 0.5f * t + 0.01f * t * t);
+        }
+        assertTrue(mEstimator.computeEstimate());
+        // velocity of the newest sample, at t = 70
+        assertEquals(1.9f, mEstimator.getVelocity(), 1e-3f);
+        assertEquals(0.02f, mEstimator.getAcceleration(), 1e-4f);
+    }
+
+    public void testTwoSamplesGiveALine() {
+        mEstimator.addSample(1000, 0);
+        mEstimator.addSample(1010, 30);
+        assertTrue(mEstimator.computeEstimate());
+        assertEquals(3f, mEstimator.getVelocity(), 1e-4f);
+        assertEquals(0f, mEstimator.getAcceleration(), 0f);
+    }
+
+    public void testNotEnoughSamples() {
+        assertFalse(mEstimator.computeEstimate());
+        mEstimator.addSample(1000, 10);
+        assertFalse(mEstimator.computeEstimate());
+        assertEquals(0f, mEstimator.getVelocity(), 0f);
+    }
+
+    public void testPauseStartsANewMovement() {
+        for (long t = 0; t <= 30; t += 10) {
+            mEstimator.addSample(1000 + t, 100 + 5f * t);
+        }
+        // longer than ASSUME_STOPPED_MS after the last sample
+        mEstimator.addSample(1100, 250);
+        assertFalse(mEstimator.computeEstimate());
+    }
+
+    public void testIsStopped() {
+        assertTrue(mEstimator.isStopped(1000));
+        mEstimator.addSample(1000, 0);
+        assertFalse(mEstimator.isStopped(1020));
+        assertTrue(mEstimator.isStopped(1100));
+    }
+
+    public void testPredictDecelerationStopsAtZeroVelocity() {
+        for (long t = 0; t <= 70; t += 10) {
+            mEstimator.addSample(1000 + t, t - 0.005f * t * t);
+        }
+        assertTrue(mEstimator.computeEstimate());
+        // v = 0.3 px/ms and a = -0.01 px/ms^2 at the newest sample, stops within 30 ms
+        assertEquals(4.5f, mEstimator.predictDistance(100), 1e-2f);
+        assertEquals(4.5f, mEstimator.predictDistance(30), 1e-2f);
+    }
+
+    public void testPredictAccelerationKeepsVelocity() {
+        for (long t = 0; t <= 70; t += 10) {
+            mEstimator.addSample(1000 + t, 0.5f * t + 0.01f * t * t);
+        }
+        assertTrue(mEstimator.computeEstimate());
+        assertEquals(1.9f * 50, mEstimator.predictDistance(50), 0.1f);
+    }
+}
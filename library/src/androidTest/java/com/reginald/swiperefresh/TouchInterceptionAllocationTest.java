@@ -0,0 +1,125 @@
+package com.reginald.swiperefresh;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.InstrumentationTestCase;
+import android.test.UiThreadTest;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ScrollView;
+
+
+public class TouchInterceptionAllocationTest extends InstrumentationTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int MOVE_COUNT = 10;
+    // small enough for the pulls of two gestures to stay below the refresh trigger
+    private static final int MOVE_STEP = 5;
+
+    private CustomSwipeRefreshLayout mLayout;
+    private final MotionEvent[] mGesture = new MotionEvent[MOVE_COUNT + 2];
+    private boolean mIntercepted;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final long downTime = SystemClock.uptimeMillis();
+        mGesture[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, WIDTH / 2, 100, 0);
+        for (int i = 1; i <= MOVE_COUNT; i++) {
+            mGesture[i] = MotionEvent.obtain(downTime, downTime + i * 16, MotionEvent.ACTION_MOVE,
+                    WIDTH / 2, 100 + i * MOVE_STEP, 0);
+        }
+        mGesture[MOVE_COUNT + 1] = MotionEvent.obtain(downTime, downTime + (MOVE_COUNT + 1) * 16,
+                MotionEvent.ACTION_CANCEL, WIDTH / 2, 100 + MOVE_COUNT * MOVE_STEP, 0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (MotionEvent event : mGesture) {
+            event.recycle();
+        }
+        super.tearDown();
+    }
+
+    @UiThreadTest
+    public void testPullDragDoesNotAllocate() {
+        setUpLayout(new View(getInstrumentation().getTargetContext()));
+        assertEquals(0, countAllocations());
+    }
+
+    @UiThreadTest
+    public void testProbingDragDoesNotAllocate() {
+        final Context context = getInstrumentation().getTargetContext();
+        final ScrollView scrollView = new ScrollView(context);
+        scrollView.addView(new View(context), new ViewGroup.LayoutParams(WIDTH, HEIGHT * 3));
+        setUpLayout(scrollView);
+        // not at its top, every event is probed and passed on
+        scrollView.scrollTo(0, 100);
+        assertEquals(0, countAllocations());
+    }
+
+    private void setUpLayout(View content) {
+        final Context context = getInstrumentation().getTargetContext();
+        mLayout = new CustomSwipeRefreshLayout(context);
+        mLayout.setCustomHeadview(new StaticHeadView(context));
+        // the timeout posts to the queue, its traffic is checked by InactivityTimeoutTest
+        mLayout.setReturnToOriginalTimeout(0);
+        mLayout.addView(content);
+        final FrameLayout parent = new FrameLayout(context);
+        parent.addView(mLayout);
+        parent.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        parent.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Replay the gesture once to fill the scratch buffers, then count the objects
+     * allocated by replaying it again, from ACTION_DOWN to the last ACTION_MOVE.
+     */
+    private int countAllocations() {
+        replay(0, mGesture.length);
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        replay(0, mGesture.length - 1);
+        Debug.stopAllocCounting();
+        final int count = Debug.getThreadAllocCount();
+        replay(mGesture.length - 1, mGesture.length);
+        return count;
+    }
+
+    private void replay(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i == 0) {
+                mIntercepted = false;
+            }
+            // like the parent dispatch: the events after an intercepted one go to onTouchEvent()
+            if (mIntercepted) {
+                mLayout.onTouchEvent(mGesture[i]);
+            } else {
+                mIntercepted = mLayout.onInterceptTouchEvent(mGesture[i]);
+            }
+        }
+    }
+
+    /**
+     * A head that does nothing on state changes, the default head formats the
+     * time of the last refresh.
+     */
+    private static class StaticHeadView extends View
+            implements CustomSwipeRefreshLayout.CustomSwipeRefreshHeadLayout {
+
+        StaticHeadView(Context context) {
+            super(context);
+            setMinimumHeight(100);
+        }
+
+        @Override
+        public void onStateChange(CustomSwipeRefreshLayout.State currentState,
+                                  CustomSwipeRefreshLayout.State lastState) {
+        }
+    }
+}
@@ -4,13 +4,18 @@ package com.reginald.swiperefresh;
  */
 
 
+import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.RadialGradient;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Region;
+import android.graphics.Shader;
 import android.support.v4.view.ViewCompat;
 import android.view.View;
-import android.view.animation.AnimationUtils;
+import android.view.WindowManager;
 import android.view.animation.Interpolator;
 
 
@@ -21,7 +26,7 @@ import android.view.animation.Interpolator;
  * the user is to triggering something (e.g. how far they need to pull down to
  * trigger a refresh).
  */
-final class CustomSwipeProgressBar {
+final class CustomSwipeProgressBar implements ProgressRenderer {
 
     // Default progress animation colors are grays.
     private final static int COLOR1 = 0xB3000000;
@@ -31,19 +36,66 @@ final class CustomSwipeProgressBar {
 
     // The duration of the animation cycle.
     private static final int ANIMATION_DURATION_MS = 2000;
+    private static final long ANIMATION_DURATION_NANOS = ANIMATION_DURATION_MS * 1000000L;
 
     // The duration of the animation to clear the bar.
     private static final int FINISH_ANIMATION_DURATION_MS = 1000;
+    private static final long FINISH_ANIMATION_DURATION_NANOS = FINISH_ANIMATION_DURATION_MS * 1000000L;
+
+    // Frames that come earlier than this part of the frame interval are skipped,
+    // so that a few ms of jitter do not skip the frame after.
+    private static final float FRAME_INTERVAL_TOLERANCE = 0.75f;
 
     // Interpolator for varying the speed of the animation.
     private static final Interpolator INTERPOLATOR = CustomInterpolator.getInstance();
 
+    // Maximum number of circles drawn in one frame.
+    private static final int MAX_CIRCLES = 5;
+
+    // Refresh rate used when the display reports none.
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
     private final Paint mPaint = new Paint();
     private final RectF mClipRect = new RectF();
+    // the circles of the current frame, in drawing order
+    private final int[] mCircleColors = new int[MAX_CIRCLES];
+    private final float[] mCirclePercents = new float[MAX_CIRCLES];
+    private int mCircleCount;
+    // the visible rings of the current frame, from the center outward
+    private final int[] mRingColors = new int[MAX_CIRCLES];
+    private final float[] mRingRadii = new float[MAX_CIRCLES];
+    // draw the circles as the hard color stops of one radial gradient
+    private boolean mUseShader;
+    private final Paint mShaderPaint = new Paint();
+    // the gradients of the cycles after the first, one per step of the cycle, built
+    // around 0 with a radius of 1 and moved to the bar by the matrix, null until used
+    private RadialGradient[] mStepShaders;
+    private final Matrix mShaderMatrix = new Matrix();
     private float mTriggerPercentage;
+    // times in ns
     private long mStartTime;
     private long mFinishTime;
     private boolean mRunning;
+    // time of the last frame the animation is drawn for, in ns
+    private long mFrameTime;
+    // minimum time between two drawn frames, in ns, 0 to draw every frame
+    private long mMinFrameDelta;
+    // frames per second, 0 to draw every frame
+    private int mFrameRate;
+    private boolean mReducedMotion;
+    private final FrameClock mClock;
+    private final FrameClock.Callback mNextFrame = new FrameClock.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (frameTimeNanos - mFrameTime < mMinFrameDelta) {
+                // not drawn, wait for a later frame
+                mClock.postFrameCallback(this);
+                return;
+            }
+            mFrameTime = frameTimeNanos;
+            invalidateBounds();
+        }
+    };
 
     // Colors used when rendering the animation,
     private int mColor1;
@@ -54,8 +106,9 @@ final class CustomSwipeProgressBar {
 
     private Rect mBounds = new Rect();
 
-    public CustomSwipeProgressBar(View parent) {
+    public CustomSwipeProgressBar(View parent, FrameClock clock) {
         mParent = parent;
+        mClock = clock;
         mColor1 = COLOR1;
         mColor2 = COLOR2;
         mColor3 = COLOR3;
@@ -72,11 +125,62 @@ final class CustomSwipeProgressBar {
      * @param color3 Integer representation of a color.
      * @param color4 Integer representation of a color.
      */
-    void setColorScheme(int color1, int color2, int color3, int color4) {
+    @Override
+    public void setColorScheme(int color1, int color2, int color3, int color4) {
         mColor1 = color1;
         mColor2 = color2;
         mColor3 = color3;
         mColor4 = color4;
+        mStepShaders = null;
+    }
+
+    /**
+     * Draw the progress with one radial gradient instead of one circle per color,
+     * and clear it with a clip instead of an alpha layer when it finishes. Both ways
+     * look the same, except that the gradients are built for one step per frame at
+     * the refresh rate of the display, or at the frame rate if it is lower, and
+     * reused by the next cycles. The first cycle, drawn once per refresh, keeps the
+     * circles, so that only the gradients of one cycle are kept.
+     */
+    void setUseShader(boolean useShader) {
+        mUseShader = useShader;
+    }
+
+    boolean isUsingShader() {
+        return mUseShader;
+    }
+
+    /**
+     * Limit the rate of the progress animation, which changes slowly enough to look
+     * the same at a lower rate. The trigger follows the swipe gesture at every frame.
+     *
+     * @param frameRate frames per second, 0 to draw every frame
+     */
+    void setFrameRate(int frameRate) {
+        if (mFrameRate != frameRate) {
+            mFrameRate = frameRate;
+            mStepShaders = null;
+        }
+        mMinFrameDelta = frameRate > 0 ? (long) (FRAME_INTERVAL_TOLERANCE * 1000000000L / frameRate) : 0;
+    }
+
+    @Override
+    public void setReducedMotion(boolean reducedMotion) {
+        if (mReducedMotion == reducedMotion) {
+            return;
+        }
+        mReducedMotion = reducedMotion;
+        mFinishTime = 0;
+        if (mRunning) {
+            if (!reducedMotion) {
+                mStartTime = mClock.now();
+                mFrameTime = mStartTime;
+                mClock.postFrameCallback(mNextFrame);
+            } else {
+                mClock.removeFrameCallback(mNextFrame);
+            }
+        }
+        invalidateBounds();
     }
 
     /**
@@ -84,44 +188,72 @@ final class CustomSwipeProgressBar {
      * gesture. and use this value to update the percentage of the trigger that
      * is shown.
      */
-    void setTriggerPercentage(float triggerPercentage) {
+    @Override
+    public void setTriggerPercentage(float triggerPercentage) {
+        if (mTriggerPercentage == triggerPercentage) {
+            return;
+        }
         mTriggerPercentage = triggerPercentage;
         mStartTime = 0;
-        ViewCompat.postInvalidateOnAnimation(mParent);
+        ViewCompat.postInvalidateOnAnimation(mParent,
+                mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+    }
+
+    /**
+     * Invalidate only the strip of the parent the bar is drawn in.
+     */
+    private void invalidateBounds() {
+        if (!mBounds.isEmpty()) {
+            mParent.invalidate(mBounds);
+        }
     }
 
     /**
      * Start showing the progress animation.
      */
-    void start() {
+    @Override
+    public void start() {
         if (!mRunning) {
             mTriggerPercentage = 0;
-            mStartTime = AnimationUtils.currentAnimationTimeMillis();
+            mStartTime = mClock.now();
+            mFrameTime = mStartTime;
             mRunning = true;
-            mParent.postInvalidate();
+            if (mReducedMotion) {
+                invalidateBounds();
+            } else {
+                mClock.postFrameCallback(mNextFrame);
+            }
         }
     }
 
     /**
      * Stop showing the progress animation.
      */
-    void stop() {
+    @Override
+    public void stop() {
         if (mRunning) {
             mTriggerPercentage = 0;
-            mFinishTime = AnimationUtils.currentAnimationTimeMillis();
             mRunning = false;
-            mParent.postInvalidate();
+            if (mReducedMotion) {
+                invalidateBounds();
+                return;
+            }
+            mFinishTime = mClock.now();
+            mFrameTime = mFinishTime;
+            mClock.postFrameCallback(mNextFrame);
         }
     }
 
     /**
      * @return Return whether the progress animation is currently running.
      */
-    boolean isRunning() {
+    @Override
+    public boolean isRunning() {
         return mRunning || mFinishTime > 0;
     }
 
-    void draw(Canvas canvas) {
+    @Override
+    public void draw(Canvas canvas) {
         final int width = mBounds.width();
         final int height = mBounds.height();
         final int cx = mBounds.left + width / 2;
@@ -129,18 +261,29 @@ final class CustomSwipeProgressBar {
         boolean drawTriggerWhileFinishing = false;
         int restoreCount = canvas.save();
         canvas.clipRect(mBounds);
-        if (mRunning || (mFinishTime > 0)) {
-            long now = AnimationUtils.currentAnimationTimeMillis();
-            long elapsed = (now - mStartTime) % ANIMATION_DURATION_MS;
-            long iterations = (now - mStartTime) / ANIMATION_DURATION_MS;
-            float rawProgress = (elapsed / (ANIMATION_DURATION_MS / 100f));
+        if (mRunning && mReducedMotion) {
+            // a static bar, nothing to repost
+            canvas.drawColor(mColor1);
+        } else if (mRunning || (mFinishTime > 0)) {
+            // draw for the time of the frame, even if the frame is drawn twice
+            long now = mFrameTime;
+            long elapsed = (now - mStartTime) % ANIMATION_DURATION_NANOS;
+            long iterations = (now - mStartTime) / ANIMATION_DURATION_NANOS;
+            int shaderStep = -1;
+            if (mUseShader && iterations > 0) {
+                // draw the step of the frame, its gradient is reused by the next cycles
+                final int steps = getStepShaders().length;
+                shaderStep = (int) (elapsed * steps / ANIMATION_DURATION_NANOS);
+                elapsed = shaderStep * ANIMATION_DURATION_NANOS / steps;
+            }
+            float rawProgress = (elapsed / (ANIMATION_DURATION_NANOS / 100f));
 
             // If we're not running anymore, that means we're running through
             // the finish animation.
             if (!mRunning) {
                 // If the finish animation is done, don't draw anything, and
                 // don't repost.
-                if ((now - mFinishTime) >= FINISH_ANIMATION_DURATION_MS) {
+                if ((now - mFinishTime) >= FINISH_ANIMATION_DURATION_NANOS) {
                     mFinishTime = 0;
                     canvas.restoreToCount(restoreCount);
                     return;
@@ -149,13 +292,18 @@ final class CustomSwipeProgressBar {
                 // Otherwise, use a 0 opacity alpha layer to clear the animation
                 // from the inside out. This layer will prevent the circles from
                 // drawing within its bounds.
-                long finishElapsed = (now - mFinishTime) % FINISH_ANIMATION_DURATION_MS;
-                float finishProgress = (finishElapsed / (FINISH_ANIMATION_DURATION_MS / 100f));
+                long finishElapsed = (now - mFinishTime) % FINISH_ANIMATION_DURATION_NANOS;
+                float finishProgress = (finishElapsed / (FINISH_ANIMATION_DURATION_NANOS / 100f));
                 float pct = (finishProgress / 100f);
                 // Radius of the circle is half of the screen.
                 float clearRadius = width / 2 * INTERPOLATOR.getInterpolation(pct);
                 mClipRect.set(cx - clearRadius, mBounds.top, cx + clearRadius, mBounds.bottom);
-                canvas.saveLayerAlpha(mClipRect, 0, 0);
+                if (mUseShader) {
+                    // nothing is drawn in the cleared part, no layer is needed for that
+                    canvas.clipRect(mClipRect, Region.Op.DIFFERENCE);
+                } else {
+                    canvas.saveLayerAlpha(mClipRect, 0, 0);
+                }
                 // Only draw the trigger if there is a space in the center of
                 // this refreshing view that needs to be filled in by the
                 // trigger. If the progress view is just still animating, let it
@@ -164,17 +312,18 @@ final class CustomSwipeProgressBar {
             }
 
             // First fill in with the last color that would have finished drawing.
+            final int backgroundColor;
             if (iterations == 0) {
-                canvas.drawColor(mColor1);
+                backgroundColor = mColor1;
             } else {
                 if (rawProgress >= 0 && rawProgress < 25) {
-                    canvas.drawColor(mColor4);
+                    backgroundColor = mColor4;
                 } else if (rawProgress >= 25 && rawProgress < 50) {
-                    canvas.drawColor(mColor1);
+                    backgroundColor = mColor1;
                 } else if (rawProgress >= 50 && rawProgress < 75) {
-                    canvas.drawColor(mColor2);
+                    backgroundColor = mColor2;
                 } else {
-                    canvas.drawColor(mColor3);
+                    backgroundColor = mColor3;
                 }
             }
 
@@ -184,25 +333,35 @@ final class CustomSwipeProgressBar {
             // progress 25-75 draw mColor3
             // progress 50-100 draw mColor4
             // progress 75 (wrap to 25) draw mColor1
+            mCircleCount = 0;
             if ((rawProgress >= 0 && rawProgress <= 25)) {
                 float pct = (((rawProgress + 25) * 2) / 100f);
-                drawCircle(canvas, cx, cy, mColor1, pct);
+                addCircle(mColor1, pct);
             }
             if (rawProgress >= 0 && rawProgress <= 50) {
                 float pct = ((rawProgress * 2) / 100f);
-                drawCircle(canvas, cx, cy, mColor2, pct);
+                addCircle(mColor2, pct);
             }
             if (rawProgress >= 25 && rawProgress <= 75) {
                 float pct = (((rawProgress - 25) * 2) / 100f);
-                drawCircle(canvas, cx, cy, mColor3, pct);
+                addCircle(mColor3, pct);
             }
             if (rawProgress >= 50 && rawProgress <= 100) {
                 float pct = (((rawProgress - 50) * 2) / 100f);
-                drawCircle(canvas, cx, cy, mColor4, pct);
+                addCircle(mColor4, pct);
             }
             if ((rawProgress >= 75 && rawProgress <= 100)) {
                 float pct = (((rawProgress - 75) * 2) / 100f);
-                drawCircle(canvas, cx, cy, mColor1, pct);
+                addCircle(mColor1, pct);
+            }
+
+            if (shaderStep >= 0) {
+                drawCirclesWithShader(canvas, cx, cy, backgroundColor, shaderStep);
+            } else {
+                canvas.drawColor(backgroundColor);
+                for (int i = 0; i < mCircleCount; i++) {
+                    drawCircle(canvas, cx, cy, mCircleColors[i], mCirclePercents[i]);
+                }
             }
             if (mTriggerPercentage > 0 && drawTriggerWhileFinishing) {
                 // There is some portion of trigger to draw. Restore the canvas,
@@ -215,7 +374,7 @@ final class CustomSwipeProgressBar {
                 drawTrigger(canvas, cx, cy);
             }
             // Keep running until we finish out the last cycle.
-            ViewCompat.postInvalidateOnAnimation(mParent);
+            mClock.postFrameCallback(mNextFrame);
         } else {
             // Otherwise if we're in the middle of a trigger, draw that.
             if (mTriggerPercentage > 0 && mTriggerPercentage <= 1.0) {
@@ -230,6 +389,111 @@ final class CustomSwipeProgressBar {
         canvas.drawCircle(cx, cy, cx * mTriggerPercentage, mPaint);
     }
 
+    private void addCircle(int color, float pct) {
+        mCircleColors[mCircleCount] = color;
+        mCirclePercents[mCircleCount] = pct;
+        mCircleCount++;
+    }
+
+    /**
+     * Draws the background and the circles of the frame with a single rect. Each
+     * circle hides the circles drawn before it, so what can be seen is a set of
+     * rings around the center, which a radial gradient with hard stops draws in
+     * one pass.
+     * <p/>
+     * The rings depend only on the step of the cycle, so the gradient of a step is
+     * built once, around 0 with the unit radius of the circles, and then scaled and
+     * moved onto the bar with its local matrix.
+     *
+     * @param canvas          the canvas to draw on
+     * @param cx              the center x coordinate
+     * @param cy              the center y coordinate
+     * @param backgroundColor the color around the circles
+     * @param step            the step of the cycle
+     */
+    private void drawCirclesWithShader(Canvas canvas, int cx, int cy, int backgroundColor,
+                                       int step) {
+        if (cx <= 0) {
+            return;
+        }
+        RadialGradient shader = mStepShaders[step];
+        if (shader == null) {
+            shader = createStepShader(backgroundColor);
+            if (shader == null) {
+                canvas.drawColor(backgroundColor);
+                return;
+            }
+            mStepShaders[step] = shader;
+        }
+        // the radius of a circle is its percentage of cx
+        mShaderMatrix.setTranslate(cx, cy);
+        mShaderMatrix.preScale(cx, cx);
+        shader.setLocalMatrix(mShaderMatrix);
+        mShaderPaint.setShader(shader);
+        canvas.drawRect(mBounds, mShaderPaint);
+    }
+
+    /**
+     * @return the gradients of the steps of a cycle, one step per frame at the refresh
+     * rate of the display, or at the frame rate if it is lower.
+     */
+    private RadialGradient[] getStepShaders() {
+        if (mStepShaders == null) {
+            final WindowManager windowManager = (WindowManager) mParent.getContext()
+                    .getSystemService(Context.WINDOW_SERVICE);
+            float rate = windowManager.getDefaultDisplay().getRefreshRate();
+            if (rate < 1) {
+                rate = DEFAULT_REFRESH_RATE;
+            }
+            if (mFrameRate > 0 && mFrameRate < rate) {
+                rate = mFrameRate;
+            }
+            mStepShaders = new RadialGradient[Math.max(1, Math.round(ANIMATION_DURATION_MS * rate / 1000))];
+        }
+        return mStepShaders;
+    }
+
+    /**
+     * @return the gradient of the circles of the frame, around 0 with a radius of 1
+     * for a circle that covers the whole bar, or null if no circle can be seen.
+     */
+    private RadialGradient createStepShader(int backgroundColor) {
+        // the visible rings, from the center outward: the circles drawn last are on
+        // top, a circle shows only outside of the circles drawn after it
+        int bandCount = 0;
+        float outerRadius = 0;
+        for (int i = mCircleCount - 1; i >= 0; i--) {
+            final float radius = INTERPOLATOR.getInterpolation(mCirclePercents[i]);
+            if (radius > outerRadius) {
+                mRingRadii[bandCount] = radius;
+                mRingColors[bandCount] = mCircleColors[i];
+                bandCount++;
+                outerRadius = radius;
+            }
+        }
+        if (bandCount == 0) {
+            return null;
+        }
+
+        // the gradient ends just outside of the largest ring, the background
+        // color is clamped beyond
+        final float gradientRadius = outerRadius * 1.001f;
+        final int stopCount = (bandCount + 1) * 2;
+        final int[] colors = new int[stopCount];
+        final float[] stops = new float[stopCount];
+        float innerRadius = 0;
+        for (int i = 0; i < bandCount; i++) {
+            colors[i * 2] = colors[i * 2 + 1] = mRingColors[i];
+            stops[i * 2] = innerRadius / gradientRadius;
+            stops[i * 2 + 1] = mRingRadii[i] / gradientRadius;
+            innerRadius = mRingRadii[i];
+        }
+        colors[stopCount - 2] = colors[stopCount - 1] = backgroundColor;
+        stops[stopCount - 2] = innerRadius / gradientRadius;
+        stops[stopCount - 1] = 1f;
+        return new RadialGradient(0, 0, gradientRadius, colors, stops, Shader.TileMode.CLAMP);
+    }
+
     /**
      * Draws a circle centered in the view.
      *
@@ -252,7 +516,8 @@ final class CustomSwipeProgressBar {
     /**
      * Set the drawing bounds of this SwipeProgressBar.
      */
-    void setBounds(int left, int top, int right, int bottom) {
+    @Override
+    public void setBounds(int left, int top, int right, int bottom) {
         mBounds.left = left;
         mBounds.top = top;
         mBounds.right = right;
@@ -262,9 +527,7 @@ final class CustomSwipeProgressBar {
     /**
      * A pre-baked bezier-curved interpolator for indeterminate progress animations.
      */
-    static final class CustomInterpolator implements Interpolator {
-        private static final CustomInterpolator INSTANCE = new CustomInterpolator();
-
+    static final class CustomInterpolator extends LookupTableInterpolator {
         public final static CustomInterpolator getInstance() {
             return INSTANCE;
         }
@@ -273,7 +536,7 @@ final class CustomSwipeProgressBar {
          * Use getInstance instead of instantiating.
          */
         private CustomInterpolator() {
-            super();
+            super(VALUES);
         }
 
         /**
@@ -299,28 +562,7 @@ final class CustomSwipeProgressBar {
                 0.9944f, 0.9955f, 0.9964f, 0.9973f, 0.9981f, 0.9986f, 0.9992f, 0.9995f, 0.9998f, 1.0f, 1.0f
         };
 
-        private static final float STEP_SIZE = 1.0f / (VALUES.length - 1);
-
-        @Override
-        public float getInterpolation(float input) {
-            if (input >= 1.0f) {
-                return 1.0f;
-            }
-
-            if (input <= 0f) {
-                return 0f;
-            }
-
-            int position = Math.min(
-                    (int) (input * (VALUES.length - 1)),
-                    VALUES.length - 2);
-
-            float quantized = position * STEP_SIZE;
-            float difference = input - quantized;
-            float weight = difference / STEP_SIZE;
-
-            return VALUES[position] + weight * (VALUES[position + 1] - VALUES[position]);
-        }
-
+        // created after the table it is built from
+        private static final CustomInterpolator INSTANCE = new CustomInterpolator();
     }
-}
\ No newline at end of file
+}
@@ -3,13 +3,20 @@ package com.reginald.swiperefresh;
  * Created by tony.lxy on 2014/9/5.
  */
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
 import android.support.v4.view.ViewCompat;
-import android.support.v4.view.ViewPager;
+import android.support.v4.widget.ScrollerCompat;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
@@ -17,12 +24,13 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.AccelerateInterpolator;
+import android.view.ViewTreeObserver;
 import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Transformation;
+import android.view.animation.Interpolator;
+import android.webkit.WebView;
 import android.widget.AbsListView;
+import android.widget.ProgressBar;
+import android.widget.ScrollView;
 
 /**
  * The CustomSwipeRefreshLayout should be used whenever the user can refresh the
@@ -34,8 +42,12 @@ import android.widget.AbsListView;
  * Two refresh mode are supported:
  * swipe mode: android.support.v4.widget.SwipeRefreshLayout style with custom refresh head
  * pull mode: pull-to-refresh style with progress bar and custom refresh head
+ * Content views supporting nested scrolling (e.g. RecyclerView) report their scroll
+ * deltas to this layout directly, other content views are probed while intercepting
+ * touch events.
  */
-public class CustomSwipeRefreshLayout extends ViewGroup {
+public class CustomSwipeRefreshLayout extends ViewGroup implements NestedScrollingParent,
+        NestedScrollingChild {
 
     public static final boolean DEBUG = false;
     public static final String TAG = "csrl";
@@ -43,6 +55,9 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     public static final int REFRESH_MODE_SWIPE = 1;
     public static final int REFRESH_MODE_PULL = 2;
 
+    public static final int PROGRESS_BAR_RENDERER_CANVAS = 1;
+    public static final int PROGRESS_BAR_RENDERER_DRAWABLE = 2;
+
     // time out for no movements during swipe action
     private static final int RETURN_TO_ORIGINAL_POSITION_TIMEOUT = 500;
 
@@ -73,19 +88,42 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     // swipe resistance factor
     private static final float RESISTANCE_FACTOR = .5f;
 
+    // how far ahead the pull motion is predicted for a predictive refresh, in ms
+    private static final int PREDICTIVE_REFRESH_LOOK_AHEAD = 150;
+
+    // minimum speed of the refresh head for a predictive refresh, in dp per second
+    private static final int PREDICTIVE_REFRESH_MIN_VELOCITY = 150;
+
+    // deceleration of the refresh head pulled down by an overscrolling fling, in dp/s^2
+    private static final int OVERSCROLL_DECELERATION = 4000;
+
+    // stiffness of the return spring, in 1/s^2
+    private static final float SPRING_STIFFNESS = 400f;
+
+    // damping ratio of the return spring, critically damped
+    private static final float SPRING_DAMPING_RATIO = 1f;
+
+    // rate of the progress animation of the top progress bar while refreshing, in frames per second
+    private static final int REFRESHING_FRAME_RATE = 30;
+
+    // the return spring is at rest within this distance from its end position, in px
+    private static final float SPRING_REST_THRESHOLD = 1f;
+
     private static final int[] LAYOUT_ATTRS = new int[]{
             android.R.attr.enabled
     };
 
 
-    private final DecelerateInterpolator mDecelerateInterpolator;
-    private final AccelerateInterpolator mAccelerateInterpolator;
-    private final Animation mAnimateStayComplete = new Animation() {
-        @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
-            // DO NOTHING
-        }
-    };
+    private final Interpolator mDecelerateInterpolator;
+    private final Interpolator mAccelerateInterpolator;
+    // steps all the animations, with one timestamp per frame
+    private final FrameClock mFrameClock = new FrameClock(this);
+    private boolean mAttachedToWindow;
+    private final Rect mVisibleRect = new Rect();
+    // moves the content, and the head with it
+    private final FrameAnimator mOffsetAnimator = new FrameAnimator(mFrameClock);
+    // shrinks the trigger of the top progress bar
+    private final FrameAnimator mProgressShrinkAnimator = new FrameAnimator(mFrameClock);
     boolean enableTopProgressBar = true;
     boolean keepTopRefreshingHead = true;
     int refresshMode = REFRESH_MODE_SWIPE;
@@ -94,6 +132,7 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     private RefreshCheckHandler mRefreshCheckHandler;
     private ScrollUpHandler mScrollUpHandler;
     private ScrollLeftOrRightHandler mScrollLeftOrRightHandler;
+    private final ScrollCapabilityRegistry mScrollCapabilityRegistry = new ScrollCapabilityRegistry();
     private int mReturnToOriginalTimeout = RETURN_TO_ORIGINAL_POSITION_TIMEOUT;
     private int mRefreshCompleteTimeout = REFRESH_COMPLETE_POSITION_TIMEOUT;
     private float mResistanceFactor = RESISTANCE_FACTOR;
@@ -101,8 +140,24 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     private int mProgressBarHeight = PROGRESS_BAR_HEIGHT;
     private int mReturnToTopDuration = RETURN_TO_TOP_DURATION;
     private int mReturnToHeaderDuration = RETURN_TO_HEADER_DURATION;
+    private boolean enableSpringReturn;
+    private float mSpringStiffness = SPRING_STIFFNESS;
+    private float mSpringDampingRatio = SPRING_DAMPING_RATIO;
+    private final SpringInterpolator mSpringInterpolator = new SpringInterpolator();
+    // velocity of the head when the finger left it, in px/s, used by the next return motion
+    private float mReleaseVelocity;
     private int mConvertedProgressBarHeight;
-    private CustomSwipeProgressBar mTopProgressBar;
+    private ProgressRenderer mTopProgressBar;
+    private CustomSwipeProgressBar mCanvasProgressBar;
+    // created on the first use, null if not available
+    private DrawableProgressRenderer mDrawableProgressBar;
+    private int mProgressBarRenderer = PROGRESS_BAR_RENDERER_CANVAS;
+    private final int[] mProgressBarColors = new int[4];
+    private int mRefreshingFrameRate = REFRESHING_FRAME_RATE;
+    private boolean enableReducedMotion = true;
+    // whether the refresh indicators are static, because the system asks for less motion
+    private boolean mReducedMotion;
+    private ReducedMotionMonitor mReducedMotionMonitor;
     private View mHeadview;
     private boolean hasHeadview;
     //the content that gets pulled down
@@ -110,7 +165,53 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     private int mTargetOriginalTop;
     private int mOriginalOffsetBottom;
     private OnRefreshListener mListener;
-    private MotionEvent mDownEvent;
+    private OnRefreshCancelListener mRefreshCancelListener;
+    private boolean enablePredictiveRefresh;
+    private final SwipeVelocityEstimator mVelocityEstimator = new SwipeVelocityEstimator();
+    // minimum speed of the refresh head for a predictive refresh, in px per ms
+    private float mPredictiveRefreshMinVelocity;
+    // onRefresh() has been called ahead of the refresh trigger
+    private boolean mPredictedRefresh;
+    // refreshComplete() has been called for a predicted refresh that is not shown yet
+    private boolean mPredictedRefreshComplete;
+    // position of the ACTION_DOWN event, kept as primitives so no MotionEvent is retained
+    private boolean mHasDownEvent;
+    private float mDownX;
+    private float mDownY;
+    // scratch rect reused by the hit tests of the scroll probes
+    private final Rect mTempRect = new Rect();
+    // views under the finger of the current gesture, from mTarget to the deepest child
+    private View[] mHitPath = new View[8];
+    private int mHitPathSize;
+    private boolean mHitPathValid;
+    private final ViewTreeObserver.OnGlobalLayoutListener mHitPathInvalidator =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    // any layout pass in the window may move the views on the hit path
+                    mHitPathValid = false;
+                    mContentTopState = CONTENT_TOP_UNKNOWN;
+                    // or this layout out of the screen
+                    checkAnimationVisibility();
+                }
+            };
+
+    private static final int CONTENT_TOP_UNKNOWN = 0;
+    private static final int CONTENT_AT_TOP = 1;
+    private static final int CONTENT_NOT_AT_TOP = 2;
+    private boolean enableContentTopTracking;
+    // whether the content under the finger is at its top, known until it scrolls
+    private int mContentTopState = CONTENT_TOP_UNKNOWN;
+    private final ViewTreeObserver.OnScrollChangedListener mContentTopInvalidator =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    // some view in the window scrolled, lists report their scrolling here too
+                    mContentTopState = CONTENT_TOP_UNKNOWN;
+                    // a scrolling parent or pager may have moved this layout out of the screen
+                    checkAnimationVisibility();
+                }
+            };
     private int mFrom;
     private boolean mRefreshing = false;
     private int mTouchSlop;
@@ -118,28 +219,122 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     private float mPrevY;
     private float mFromPercentage = 0;
     private float mCurrPercentage = 0;
-    private final AnimationListener mShrinkAnimationListener = new BaseAnimationListener() {
-        @Override
-        public void onAnimationEnd(Animation animation) {
-            mCurrPercentage = 0;
-        }
-    };
     private boolean enableHorizontalScroll = true;
+    private boolean enableTranslationOffset;
+    // the content and the head are moved with their translation instead of their position,
+    // only changes on layout so that the children are never moved both ways
+    private boolean mTranslationOffset;
+    // the head was not measured nor laid out while it was hidden
+    private boolean mHeadMeasureSkipped;
+    private boolean enableHardwareLayers;
+    // the head or the content is moving, hardware layers are kept while it does
+    private boolean mMotionLayersActive;
+    // the refresh state the layer of the head was last chosen for
+    private int mMotionLayersState = -1;
+    // the layers set by this layout, layers set by the app are left alone
+    private boolean mHeadLayer;
+    private boolean mContentLayer;
     private boolean isHorizontalScroll;
-    private boolean checkHorizontalMove;
+    private GestureDirectionClassifier mDirectionClassifier;
     private boolean mCheckValidMotionFlag = true;
     private int mCurrentTargetOffsetTop = 0;
-    private final AnimationListener mReturningAnimationListener = new BaseAnimationListener() {
+
+    private boolean mInReturningAnimation;
+    // the current gesture caught the head in a return animation while refreshing
+    private boolean mCaughtRefreshingHead;
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper;
+    private final NestedScrollingChildHelper mNestedScrollingChildHelper;
+    private final int[] mParentScrollConsumed = new int[2];
+    private final int[] mParentOffsetInWindow = new int[2];
+    private boolean mNestedScrollInProgress;
+    private boolean enableTouchCoalescing;
+    // onTouchEvent() is called from onInterceptTouchEvent()
+    private boolean mInInterceptTouchEvent;
+    // the rest of the current gesture is to be passed to the content
+    private boolean mHandOffToContent;
+    // the content owns the rest of the current gesture
+    private boolean mContentOwnsGesture;
+    // the content received the rest of the current gesture from the head
+    private boolean mHandedOff;
+    // upward movement of the event that collapsed the head, not consumed by it, in px
+    private float mHandOffDelta;
+    // added to the finger position after the hand-off to continue the head offset samples
+    private float mHandOffPositionBase;
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+    private boolean enableOverScrollCapture;
+    private boolean enableOverScrollRefresh;
+    // simulates a fling of the content to find out when it reaches the top
+    private ScrollerCompat mFlingScroller;
+    private View mFlingTarget;
+    // deceleration of the overscroll bounce, in px/ms^2
+    private float mOverScrollDeceleration;
+    // initial speed of the overscroll bounce, in px/ms
+    private float mBounceVelocity;
+    // in ns
+    private long mBounceStartTime;
+
+    private final FrameClock.Callback mFlingWatcher = new FrameClock.Callback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mFlingTarget == null || !mFlingScroller.computeScrollOffset()) {
+                mFlingTarget = null;
+                return;
+            }
+            if (canViewScrollUp(mFlingTarget)) {
+                mFrameClock.postFrameCallback(this);
+                return;
+            }
+            // the fling reached the top of the content, pass what is left to the head
+            final float velocity = mFlingScroller.getCurrVelocity() / 1000f * mResistanceFactor;
+            mFlingScroller.abortAnimation();
+            mFlingTarget = null;
+            startOverScrollBounce(velocity);
+        }
+
+    };
+
+    private final FrameClock.Callback mOverScrollBounce = new FrameClock.Callback() {
+
         @Override
-        public void onAnimationEnd(Animation animation) {
-            // Once the target content has returned to its start position, reset
-            // the target offset to 0
-            // mCurrentTargetOffsetTop = 0;
+        public void doFrame(long frameTimeNanos) {
+            final float peakTime = mBounceVelocity / mOverScrollDeceleration;
+            final float elapsed = Math.min(peakTime, (frameTimeNanos - mBounceStartTime) / 1000000f);
+            final int offset = (int) (mBounceVelocity * elapsed -
+                    0.5f * mOverScrollDeceleration * elapsed * elapsed);
+            updateContentOffsetTop(mTargetOriginalTop + offset, false);
+            setTriggerPercentage(
+                    mAccelerateInterpolator.getInterpolation((float) offset / mTriggerOffset));
+            if (elapsed < peakTime) {
+                mFrameClock.postFrameCallback(this);
+                return;
+            }
+
+            // the head stopped, refresh or spring back
             mInReturningAnimation = false;
+            if (enableOverScrollRefresh && isOverScrollTriggered()) {
+                startRefresh();
+            } else {
+                mCancel.run();
+            }
         }
+
     };
+    // part of the head offset below a pixel left by the last pulls, in px
+    private float mPullRemainder;
+    // touch movement received since the last frame, applied once per frame
+    private float mPendingPullDelta;
+    private boolean mPendingPullScheduled;
 
-    private boolean mInReturningAnimation;
+    private final FrameClock.Callback mApplyPendingPull = new FrameClock.Callback() {
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            applyPendingPull();
+        }
+
+    };
     private int mTriggerOffset = 0;
 
     private final Runnable mReturnToTrigerPosition = new Runnable() {
@@ -147,8 +342,7 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         @Override
         public void run() {
             mInReturningAnimation = true;
-            animateOffsetToTrigerPosition(mTarget.getTop(),
-                    mReturningAnimationListener);
+            animateOffsetToTrigerPosition(getTargetTop());
         }
 
     };
@@ -158,35 +352,48 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         @Override
         public void run() {
             mInReturningAnimation = true;
-            animateOffsetToStartPosition(mTarget.getTop(),
-                    mReturningAnimationListener);
+            animateOffsetToStartPosition(getTargetTop());
         }
 
     };
 
-    private final AnimationListener mStayCompleteListener = new BaseAnimationListener() {
+    // mStayCompleteTimeout is posted, or is to be posted again when attached
+    private boolean mStayCompletePending;
+
+    // Runs once the refresh complete information has been shown long enough.
+    private final Runnable mStayCompleteTimeout = new Runnable() {
+
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void run() {
+            mStayCompletePending = false;
             mReturnToStartPosition.run();
             mRefreshing = false;
         }
+
     };
 
     private final Runnable mStayRefreshCompletePosition = new Runnable() {
 
         @Override
         public void run() {
-            animateStayComplete(mStayCompleteListener);
+            removeCallbacks(mStayCompleteTimeout);
+            mStayCompletePending = true;
+            postDelayed(mStayCompleteTimeout, mRefreshCompleteTimeout);
         }
 
     };
 
-    private Animation mShrinkTrigger = new Animation() {
+    private final FrameAnimator.Callback mShrinkTrigger = new FrameAnimator.Callback() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void onAnimationUpdate(float interpolatedTime) {
             float percent = mFromPercentage + ((0 - mFromPercentage) * interpolatedTime);
             mTopProgressBar.setTriggerPercentage(percent);
         }
+
+        @Override
+        public void onAnimationEnd() {
+            mCurrPercentage = 0;
+        }
     };
 
 
@@ -197,49 +404,81 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
             mInReturningAnimation = true;
             // Timeout fired since the user last moved their finger; animate the
             // trigger to 0 and put the target back at its original position
+            cancelPredictedRefresh();
+            final long duration = animateOffsetToStartPosition(getTargetTop());
             if (mTopProgressBar != null && enableTopProgressBar) {
                 mFromPercentage = mCurrPercentage;
-                mShrinkTrigger.setDuration(mReturnToTopDuration);
-                mShrinkTrigger.setAnimationListener(mShrinkAnimationListener);
-                mShrinkTrigger.reset();
-                mShrinkTrigger.setInterpolator(mDecelerateInterpolator);
-                startAnimation(mShrinkTrigger);
+                mProgressShrinkAnimator.start(duration, mDecelerateInterpolator, mShrinkTrigger);
+            }
+        }
+    };
+
+    // uptime at which the inactivity timeout cancels the gesture, 0 if not armed
+    private long mCancelDeadline;
+    private boolean mCancelCheckPosted;
+
+    // Run mCancel once the deadline is reached. Touch events only move the deadline,
+    // so that they don't remove and post a message each.
+    private final Runnable mCancelCheck = new Runnable() {
+        @Override
+        public void run() {
+            mCancelCheckPosted = false;
+            if (mCancelDeadline == 0) {
+                return;
+            }
+            final long delay = mCancelDeadline - SystemClock.uptimeMillis();
+            if (delay > 0) {
+                mCancelCheckPosted = true;
+                postDelayed(this, delay);
+            } else {
+                mCancelDeadline = 0;
+                mCancel.run();
             }
-            animateOffsetToStartPosition(mTarget.getTop(),
-                    mReturningAnimationListener);
         }
     };
 
-    private final Animation mAnimateToStartPosition = new Animation() {
+    private final FrameAnimator.Callback mAnimateToStartPosition = new FrameAnimator.Callback() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void onAnimationUpdate(float interpolatedTime) {
             int targetTop = mTargetOriginalTop;
             if (mFrom != mTargetOriginalTop) {
                 targetTop = (mFrom + (int) ((mTargetOriginalTop - mFrom) * interpolatedTime));
             }
-            int offset = targetTop - mTarget.getTop();
-            final int currentTop = mTarget.getTop();
+            int offset = targetTop - getTargetTop();
+            final int currentTop = getTargetTop();
             if (offset + currentTop < 0) {
                 offset = 0 - currentTop;
             }
             setTargetOffsetTop(offset, true);
         }
+
+        @Override
+        public void onAnimationEnd() {
+            mInReturningAnimation = false;
+            stopMotionLayers();
+        }
     };
 
-    private final Animation mAnimateToTrigerPosition = new Animation() {
+    private final FrameAnimator.Callback mAnimateToTrigerPosition = new FrameAnimator.Callback() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void onAnimationUpdate(float interpolatedTime) {
             int targetTop = mDistanceToTriggerSync;
             if (mFrom > mDistanceToTriggerSync) {
                 targetTop = (mFrom + (int) ((mDistanceToTriggerSync - mFrom) * interpolatedTime));
             }
-            int offset = targetTop - mTarget.getTop();
-            final int currentTop = mTarget.getTop();
+            int offset = targetTop - getTargetTop();
+            final int currentTop = getTargetTop();
             if (offset + currentTop < 0) {
                 offset = 0 - currentTop;
             }
             setTargetOffsetTop(offset, true);
         }
+
+        @Override
+        public void onAnimationEnd() {
+            mInReturningAnimation = false;
+            stopMotionLayers();
+        }
     };
 
 
@@ -264,13 +503,32 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
 
     public CustomSwipeRefreshLayout(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mDirectionClassifier = new GestureDirectionClassifier(mTouchSlop);
         setWillNotDraw(false);
-        mTopProgressBar = new CustomSwipeProgressBar(this);
+        mCanvasProgressBar = new CustomSwipeProgressBar(this, mFrameClock);
+        mTopProgressBar = mCanvasProgressBar;
+        mReducedMotionMonitor = new ReducedMotionMonitor(context, new ReducedMotionMonitor.Listener() {
+            @Override
+            public void onReducedMotionChanged(boolean reducedMotion) {
+                updateReducedMotion();
+            }
+        });
         setProgressBarHeight(PROGRESS_BAR_HEIGHT);
+        mPredictiveRefreshMinVelocity =
+                getResources().getDisplayMetrics().density * PREDICTIVE_REFRESH_MIN_VELOCITY / 1000f;
+        mOverScrollDeceleration =
+                getResources().getDisplayMetrics().density * OVERSCROLL_DECELERATION / 1000000f;
+
+        mDecelerateInterpolator = LookupTableInterpolator.decelerate(DECELERATE_INTERPOLATION_FACTOR);
+        mAccelerateInterpolator = LookupTableInterpolator.accelerate(ACCELERATE_INTERPOLATION_FACTOR);
 
-        mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
-        mAccelerateInterpolator = new AccelerateInterpolator(ACCELERATE_INTERPOLATION_FACTOR);
+        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+        mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
+        setNestedScrollingEnabled(true);
 
         final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.CustomSwipeRefreshLayout);
         if (a != null) {
@@ -286,132 +544,272 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
             mReturnToHeaderDuration = a.getInteger(R.styleable.CustomSwipeRefreshLayout_return_to_header_duration,
                     RETURN_TO_HEADER_DURATION);
             keepTopRefreshingHead = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_keep_refresh_head, false);
+            enablePredictiveRefresh = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_enable_predictive_refresh, false);
+            enableTranslationOffset = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_enable_translation_offset, false);
+            enableHardwareLayers = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_enable_hardware_layers, false);
+            enableSpringReturn = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_enable_spring_return, false);
+            mSpringStiffness = a.getFloat(R.styleable.CustomSwipeRefreshLayout_spring_stiffness, SPRING_STIFFNESS);
+            mSpringDampingRatio = a.getFloat(R.styleable.CustomSwipeRefreshLayout_spring_damping_ratio,
+                    SPRING_DAMPING_RATIO);
             int color1 = a.getColor(R.styleable.CustomSwipeRefreshLayout_top_progress_bar_color_1, 0);
             int color2 = a.getColor(R.styleable.CustomSwipeRefreshLayout_top_progress_bar_color_2, 0);
             int color3 = a.getColor(R.styleable.CustomSwipeRefreshLayout_top_progress_bar_color_3, 0);
             int color4 = a.getColor(R.styleable.CustomSwipeRefreshLayout_top_progress_bar_color_4, 0);
             setProgressBarColor(color1, color2, color3, color4);
+            setProgressBarRenderer(a.getInteger(R.styleable.CustomSwipeRefreshLayout_top_progress_bar_renderer,
+                    PROGRESS_BAR_RENDERER_CANVAS));
+            setRefreshingFrameRate(a.getInteger(R.styleable.CustomSwipeRefreshLayout_refreshing_frame_rate,
+                    REFRESHING_FRAME_RATE));
+            enableReducedMotion = a.getBoolean(R.styleable.CustomSwipeRefreshLayout_enable_reduced_motion, true);
             enableTopProgressBar(progressBarEnabled);
             a.recycle();
         }
     }
 
-    private void animateStayComplete(AnimationListener listener) {
-        mAnimateStayComplete.reset();
-        mAnimateStayComplete.setDuration(mRefreshCompleteTimeout);
-        mAnimateStayComplete.setAnimationListener(listener);
-        mTarget.startAnimation(mAnimateStayComplete);
+    /**
+     * Follow a fling of the content toward its top, if the content reaches its top
+     * before the fling ends, the remaining velocity pulls the head down.
+     *
+     * @param velocityY velocity of the fling, in px per second
+     */
+    private void watchFling(View target, float velocityY) {
+        if (isRefreshing() || mInReturningAnimation || mCurrentTargetOffsetTop != 0) {
+            return;
+        }
+        if (mFlingScroller == null) {
+            mFlingScroller = ScrollerCompat.create(getContext());
+        }
+        mFlingScroller.fling(0, 0, 0, (int) velocityY, 0, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        mFlingTarget = target;
+        mFrameClock.postFrameCallback(mFlingWatcher);
+    }
+
+    private void stopWatchingFling() {
+        if (mFlingTarget != null) {
+            mFlingTarget = null;
+            mFrameClock.removeFrameCallback(mFlingWatcher);
+            mFlingScroller.abortAnimation();
+        }
+    }
+
+    /**
+     * Pull the head down from the top with the given initial speed, and let it
+     * decelerate until it stops.
+     *
+     * @param velocity initial speed of the head, in px per ms
+     */
+    private void startOverScrollBounce(float velocity) {
+        if (velocity <= 0 || isRefreshing() || mInReturningAnimation || mCurrentTargetOffsetTop != 0) {
+            return;
+        }
+        int maxOffset = mDistanceToTriggerSync - mTargetOriginalTop;
+        if (!enableOverScrollRefresh) {
+            // don't show the head ready to refresh
+            maxOffset -= 1;
+        }
+        final float maxVelocity = (float) Math.sqrt(2 * mOverScrollDeceleration * maxOffset);
+        mBounceVelocity = Math.min(velocity, maxVelocity);
+        mBounceStartTime = mFrameClock.now();
+        mInReturningAnimation = true;
+        mFrameClock.postFrameCallback(mOverScrollBounce);
+    }
+
+    private boolean isOverScrollTriggered() {
+        if (refresshMode == REFRESH_MODE_SWIPE) {
+            return getTargetTop() >= mDistanceToTriggerSync;
+        }
+        return mCurrentTargetOffsetTop >= mTriggerOffset;
+    }
+
+    /**
+     * Stop a return-to-start or return-to-trigger animation at the current offset.
+     *
+     * @return Whether an animation was stopped.
+     */
+    private boolean stopReturningAnimation() {
+        if (!mInReturningAnimation) {
+            return false;
+        }
+        mOffsetAnimator.cancel();
+        mProgressShrinkAnimator.cancel();
+        mFrameClock.removeFrameCallback(mOverScrollBounce);
+        mInReturningAnimation = false;
+        // cancel() does not end the animation, the next move starts the layers again
+        stopMotionLayers();
+        mCurrentTargetOffsetTop = getTargetTop() - mTargetOriginalTop;
+        if (DEBUG)
+            Log.d(TAG, "stopReturningAnimation() at " + mCurrentTargetOffsetTop);
+        return true;
     }
 
-    private void animateOffsetToTrigerPosition(int from, AnimationListener listener) {
+    private long animateOffsetToTrigerPosition(int from) {
         mFrom = from;
-        mAnimateToTrigerPosition.reset();
-        mAnimateToTrigerPosition.setDuration(mReturnToHeaderDuration);
-        mAnimateToTrigerPosition.setAnimationListener(listener);
-        mAnimateToTrigerPosition.setInterpolator(mDecelerateInterpolator);
-        mTarget.startAnimation(mAnimateToTrigerPosition);
+        return animateOffset(from - mDistanceToTriggerSync, mReturnToHeaderDuration, mAnimateToTrigerPosition);
     }
 
-    private void animateOffsetToStartPosition(int from, AnimationListener listener) {
+    private long animateOffsetToStartPosition(int from) {
         mFrom = from;
-        mAnimateToStartPosition.reset();
-        mAnimateToStartPosition.setDuration(mReturnToTopDuration);
-        mAnimateToStartPosition.setAnimationListener(listener);
-        mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
-        mTarget.startAnimation(mAnimateToStartPosition);
+        return animateOffset(from - mTargetOriginalTop, mReturnToTopDuration, mAnimateToStartPosition);
+    }
+
+    /**
+     * Start an offset animation, with a spring seeded with the release velocity
+     * if the spring return is enabled, or with the fixed duration otherwise.
+     *
+     * @param distance distance to move up, in px
+     * @return the duration of the animation, in ms
+     */
+    private long animateOffset(int distance, int duration, FrameAnimator.Callback callback) {
+        final float releaseVelocity = mReleaseVelocity;
+        mReleaseVelocity = 0;
+        if (!enableSpringReturn) {
+            mOffsetAnimator.start(duration, mDecelerateInterpolator, callback);
+            return duration;
+        }
+        // the head moves up toward the end position while the release velocity is negative
+        mSpringInterpolator.setUp(mSpringStiffness, mSpringDampingRatio, distance,
+                -releaseVelocity, SPRING_REST_THRESHOLD);
+        mOffsetAnimator.start(mSpringInterpolator.getDuration(), mSpringInterpolator, callback);
+        return mSpringInterpolator.getDuration();
+    }
+
+
+    /**
+     * Collect the views under the touch point, from mTarget down to the deepest
+     * child. The view under the finger does not change during a gesture, so the
+     * path is built once and reused by every probe until it is invalidated.
+     *
+     * @param x touch x in the coordinate system of this layout
+     * @param y touch y in the coordinate system of this layout
+     */
+    private void buildHitPath(float x, float y) {
+        clearHitPath();
+        View view = mTarget;
+        while (view != null) {
+            if (mHitPathSize == mHitPath.length) {
+                View[] path = new View[mHitPathSize * 2];
+                System.arraycopy(mHitPath, 0, path, 0, mHitPathSize);
+                mHitPath = path;
+            }
+            mHitPath[mHitPathSize++] = view;
+
+            // convert the touch point into the coordinate system of the view
+            x += view.getScrollX() - view.getLeft();
+            y += view.getScrollY() - view.getTop();
+            if (view == mTarget && mTranslationOffset) {
+                y -= mCurrentTargetOffsetTop;
+            }
+            View hitChild = null;
+            if (view instanceof ViewGroup) {
+                final ViewGroup viewgroup = (ViewGroup) view;
+                int count = viewgroup.getChildCount();
+                for (int i = 0; i < count; ++i) {
+                    View child = viewgroup.getChildAt(i);
+                    child.getHitRect(mTempRect);
+                    if (mTempRect.contains((int) x, (int) y)) {
+                        hitChild = child;
+                        break;
+                    }
+                }
+            }
+            view = hitChild;
+        }
+        mHitPathValid = true;
+        mContentTopState = CONTENT_TOP_UNKNOWN;
+        if (DEBUG)
+            Log.d(TAG, "buildHitPath() depth = " + mHitPathSize);
+    }
+
+    private void ensureHitPath(float x, float y) {
+        if (!mHitPathValid) {
+            buildHitPath(x, y);
+        }
     }
 
+    private void clearHitPath() {
+        for (int i = 0; i < mHitPathSize; i++) {
+            mHitPath[i] = null;
+        }
+        mHitPathSize = 0;
+        mHitPathValid = false;
+    }
 
     /**
      * @return Whether it is possible for the child view of this layout to
      * scroll up. Override this if the child view is a custom view.
      */
-    private boolean canViewScrollUp(View view, MotionEvent event) {
+    private boolean canViewScrollUp(View view) {
         boolean ret;
 
-        event.offsetLocation(view.getScrollX() - view.getLeft(), view.getScrollY() - view.getTop());
         if (mScrollUpHandler != null) {
             boolean canViewScrollUp = mScrollUpHandler.canScrollUp(view);
             if (canViewScrollUp)
                 return true;
         }
 
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (view instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) view;
-                ret = absListView.getChildCount() > 0
-                        && (absListView.getFirstVisiblePosition() > 0 || absListView.getChildAt(0)
-                        .getTop() < absListView.getPaddingTop());
-            } else {
-                ret = view.getScrollY() > 0 || canChildrenScroolUp(view, event);
-            }
-        } else {
-            ret = ViewCompat.canScrollVertically(view, -1) || canChildrenScroolUp(view, event);
-        }
+        ret = mScrollCapabilityRegistry.get(view).canScrollUp(view);
         if (DEBUG)
             Log.d(TAG, "canViewScrollUp " + view.getClass().getName() + " " + ret);
         return ret;
     }
 
-    private boolean canChildrenScroolUp(View view, MotionEvent event) {
-        if (view instanceof ViewGroup) {
-            final ViewGroup viewgroup = (ViewGroup) view;
-            int count = viewgroup.getChildCount();
-            for (int i = 0; i < count; ++i) {
-                View child = viewgroup.getChildAt(i);
-                Rect bounds = new Rect();
-                child.getHitRect(bounds);
-                if (bounds.contains((int) event.getX(), (int) event.getY())) {
-                    return canViewScrollUp(child, event);
-                }
+    /**
+     * @return Whether any view on the hit path of the current gesture can scroll up.
+     */
+    private boolean canChildrenScroolUp(float x, float y) {
+        ensureHitPath(x, y);
+        for (int i = 0; i < mHitPathSize; i++) {
+            if (canViewScrollUp(mHitPath[i])) {
+                return true;
             }
         }
-
         return false;
     }
 
+    /**
+     * @return Whether the content under the finger can scroll up. With content top
+     * tracking enabled the last probe result is reused until the content scrolls
+     * or is laid out again.
+     */
+    private boolean canContentScrollUp(float x, float y) {
+        if (!enableContentTopTracking) {
+            return canChildrenScroolUp(x, y);
+        }
+        ensureHitPath(x, y);
+        if (mContentTopState == CONTENT_TOP_UNKNOWN) {
+            mContentTopState = canChildrenScroolUp(x, y) ? CONTENT_NOT_AT_TOP : CONTENT_AT_TOP;
+        }
+        return mContentTopState == CONTENT_NOT_AT_TOP;
+    }
+
     /**
      * @param direction Negative to check scrolling left, positive to check scrolling right.
      * @return Whether it is possible for the child view of this layout to
      * scroll left or right. Override this if the child view is a custom view.
      */
-    private boolean canViewScrollHorizontally(View view, MotionEvent event, int direction) {
+    private boolean canViewScrollHorizontally(View view, int direction) {
         boolean ret;
-        event.offsetLocation(view.getScrollX() - view.getLeft(), view.getScrollY() - view.getTop());
         if (mScrollLeftOrRightHandler != null) {
             boolean canViewScrollLeftOrRight = mScrollLeftOrRightHandler.canScrollLeftOrRight(view, direction);
             if (canViewScrollLeftOrRight)
                 return true;
         }
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (view instanceof ViewPager) {
-                ret = ((ViewPager) view).canScrollHorizontally(direction);
-            } else {
-                ret = view.getScrollX() * direction > 0;
-            }
-        } else {
-            ret = ViewCompat.canScrollHorizontally(view, direction);
-        }
+        ret = mScrollCapabilityRegistry.get(view).canScrollHorizontally(view, direction);
 
-        ret = ret || canChildrenScroolHorizontally(view, event, direction);
         if (DEBUG)
             Log.d(TAG, "canViewScrollHorizontally " + view.getClass().getName() + " " + ret);
         return ret;
     }
 
-    private boolean canChildrenScroolHorizontally(View view, MotionEvent event, int direction) {
-        if (view instanceof ViewGroup) {
-            final ViewGroup viewgroup = (ViewGroup) view;
-            int count = viewgroup.getChildCount();
-            for (int i = 0; i < count; ++i) {
-                View child = viewgroup.getChildAt(i);
-                Rect bounds = new Rect();
-                child.getHitRect(bounds);
-                if (bounds.contains((int) event.getX(), (int) event.getY())) {
-                    if (DEBUG)
-                        Log.d(TAG, "in child " + child.getClass().getName());
-                    return canViewScrollHorizontally(child, event, direction);
-                }
+    /**
+     * @return Whether any view on the hit path of the current gesture can scroll
+     * in the given horizontal direction.
+     */
+    private boolean canChildrenScroolHorizontally(float x, float y, int direction) {
+        ensureHitPath(x, y);
+        for (int i = 0; i < mHitPathSize; i++) {
+            if (canViewScrollHorizontally(mHitPath[i], direction)) {
+                return true;
             }
         }
         return false;
@@ -422,11 +820,16 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         if (mHeadview != null) {
             if (mHeadview == customHeadview)
                 return;
+            mHeadLayer = setMotionLayer(mHeadview, mHeadLayer, false);
+            mMotionLayersState = -1;
             removeView(mHeadview);
         }
         mHeadview = customHeadview;
         addView(mHeadview, new MarginLayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
         hasHeadview = true;
+        if (mHeadview instanceof ReducedMotionHeadLayout) {
+            ((ReducedMotionHeadLayout) mHeadview).onReducedMotionChanged(mReducedMotion);
+        }
     }
 
     public int getRefreshMode() {
@@ -451,17 +854,99 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     @Override
     public void onAttachedToWindow() {
         super.onAttachedToWindow();
-        removeCallbacks(mCancel);
+        mAttachedToWindow = true;
+        updateAnimationVisibility();
+        if (enableReducedMotion) {
+            mReducedMotionMonitor.start();
+        }
+        if (mStayCompletePending) {
+            // show the refresh complete information again for the whole timeout
+            mStayRefreshCompletePosition.run();
+        }
+        getViewTreeObserver().addOnGlobalLayoutListener(mHitPathInvalidator);
+        getViewTreeObserver().addOnScrollChangedListener(mContentTopInvalidator);
+        cancelPositionTimeout();
         removeCallbacks(mReturnToStartPosition);
     }
 
     @Override
     public void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        mAttachedToWindow = false;
+        updateAnimationVisibility();
+        mReducedMotionMonitor.stop();
+        getViewTreeObserver().removeGlobalOnLayoutListener(mHitPathInvalidator);
+        getViewTreeObserver().removeOnScrollChangedListener(mContentTopInvalidator);
+        clearHitPath();
         removeCallbacks(mReturnToStartPosition);
-        removeCallbacks(mCancel);
+        // kept pending, posted again when attached
+        removeCallbacks(mStayCompleteTimeout);
+        cancelPositionTimeout();
+        mFrameClock.removeFrameCallback(mApplyPendingPull);
+        mFrameClock.removeFrameCallback(mOverScrollBounce);
+        stopWatchingFling();
+        stopMotionLayers();
+        mPendingPullScheduled = false;
+        mPendingPullDelta = 0;
+    }
+
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateAnimationVisibility();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateAnimationVisibility();
+    }
+
+    /**
+     * Pause the animations while nobody can see them: when this layout is detached,
+     * hidden, in a hidden window or entirely out of the screen. They resume where
+     * they were paused.
+     */
+    private void updateAnimationVisibility() {
+        if (mFrameClock == null) {
+            // a visibility set from the attributes is dispatched by the View constructor,
+            // before the fields of this class are initialized
+            return;
+        }
+        final boolean visible = mAttachedToWindow && getWindowVisibility() == VISIBLE && isShown()
+                && getGlobalVisibleRect(mVisibleRect);
+        mFrameClock.setPaused(!visible);
+    }
+
+    /**
+     * Make the refresh indicators static while the system asks for less motion and
+     * reduced motion is enabled.
+     */
+    private void updateReducedMotion() {
+        final boolean reducedMotion = enableReducedMotion && mReducedMotionMonitor.isReducedMotion();
+        if (mReducedMotion == reducedMotion) {
+            return;
+        }
+        mReducedMotion = reducedMotion;
+        mCanvasProgressBar.setReducedMotion(reducedMotion);
+        if (mDrawableProgressBar != null) {
+            mDrawableProgressBar.setReducedMotion(reducedMotion);
+        }
+        if (mHeadview instanceof ReducedMotionHeadLayout) {
+            ((ReducedMotionHeadLayout) mHeadview).onReducedMotionChanged(reducedMotion);
+        }
     }
 
+    /**
+     * Check the visibility again after scrolls and layouts, only while something
+     * animates or waits to.
+     */
+    private void checkAnimationVisibility() {
+        if (mFrameClock.hasCallbacks() || mFrameClock.isPaused()) {
+            updateAnimationVisibility();
+        }
+    }
 
     /**
      * Set the listener to be notified when a refresh is triggered via the swipe
@@ -471,6 +956,14 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         mListener = listener;
     }
 
+    /**
+     * Set the listener to be notified when a refresh started by predictive refresh
+     * is rolled back because the user retracted.
+     */
+    public void setOnRefreshCancelListener(OnRefreshCancelListener listener) {
+        mRefreshCancelListener = listener;
+    }
+
     private void setTriggerPercentage(float percent) {
         if (percent == 0f) {
             // No-op. A null trigger means it's uninitialized, and setting it to zero-percent
@@ -495,7 +988,7 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         if (changeHeightOnly) {
             setRefreshState(currentState.getRefreshState());
         } else {
-            if (mTarget.getTop() > mDistanceToTriggerSync) {
+            if (getTargetTop() > mDistanceToTriggerSync) {
                 setRefreshState(State.STATE_READY);
             } else {
                 setRefreshState(State.STATE_NORMAL);
@@ -504,6 +997,11 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     }
 
     public void refreshComplete() {
+        if (mPredictedRefresh) {
+            // the refresh has not been shown yet, complete it once it is
+            mPredictedRefreshComplete = true;
+            return;
+        }
         setRefreshing(false);
     }
 
@@ -523,13 +1021,63 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         final int color2 = res.getColor(colorRes2);
         final int color3 = res.getColor(colorRes3);
         final int color4 = res.getColor(colorRes4);
-        mTopProgressBar.setColorScheme(color1, color2, color3, color4);
+        setProgressBarColor(color1, color2, color3, color4);
     }
 
     public void setProgressBarColor(int color1, int color2, int color3, int color4) {
+        mProgressBarColors[0] = color1;
+        mProgressBarColors[1] = color2;
+        mProgressBarColors[2] = color3;
+        mProgressBarColors[3] = color4;
         mTopProgressBar.setColorScheme(color1, color2, color3, color4);
     }
 
+    /**
+     * Set how the top progress bar is drawn.
+     * {@link #PROGRESS_BAR_RENDERER_CANVAS} draws the circles of the default bar on
+     * the main thread. {@link #PROGRESS_BAR_RENDERER_DRAWABLE} runs the indeterminate
+     * horizontal progress drawable of the theme, tinted with the first color, which
+     * keeps moving while the main thread is busy on API 25 and above. It needs API 21,
+     * below that the default bar is used.
+     *
+     * @param renderer PROGRESS_BAR_RENDERER_CANVAS or PROGRESS_BAR_RENDERER_DRAWABLE
+     */
+    public void setProgressBarRenderer(int renderer) {
+        ProgressRenderer progressBar = mCanvasProgressBar;
+        if (renderer == PROGRESS_BAR_RENDERER_DRAWABLE) {
+            if (mDrawableProgressBar == null) {
+                mDrawableProgressBar = DrawableProgressRenderer.create(this);
+                if (mDrawableProgressBar != null) {
+                    mDrawableProgressBar.setReducedMotion(mReducedMotion);
+                }
+            }
+            if (mDrawableProgressBar != null) {
+                progressBar = mDrawableProgressBar;
+            }
+        }
+        mProgressBarRenderer = renderer;
+        if (progressBar == mTopProgressBar) {
+            return;
+        }
+        final boolean running = mTopProgressBar.isRunning();
+        if (running) {
+            mTopProgressBar.stop();
+        }
+        mTopProgressBar.setBounds(0, 0, 0, 0);
+        mTopProgressBar = progressBar;
+        mTopProgressBar.setColorScheme(mProgressBarColors[0], mProgressBarColors[1],
+                mProgressBarColors[2], mProgressBarColors[3]);
+        if (running && mRefreshing && enableTopProgressBar) {
+            mTopProgressBar.start();
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    public int getProgressBarRenderer() {
+        return mProgressBarRenderer;
+    }
+
     /**
      * @return Whether the SwipeRefreshWidget is actively showing refresh
      * progress.
@@ -550,6 +1098,11 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
             mCurrPercentage = 0;
             mRefreshing = refreshing;
             if (mRefreshing) {
+                updateAnimationVisibility();
+                if (enableReducedMotion) {
+                    // the animator duration scale has no broadcast
+                    mReducedMotionMonitor.update();
+                }
                 if (enableTopProgressBar) {
                     mTopProgressBar.start();
                 }
@@ -567,7 +1120,7 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
                 if (refresshMode == REFRESH_MODE_PULL) {
                     mRefreshing = true;
                     removeCallbacks(mReturnToStartPosition);
-                    removeCallbacks(mCancel);
+                    cancelPositionTimeout();
                     mStayRefreshCompletePosition.run();
                 } else if (refresshMode == REFRESH_MODE_SWIPE) {
                     mRefreshing = false;
@@ -621,6 +1174,8 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        mHitPathValid = false;
+        mContentTopState = CONTENT_TOP_UNKNOWN;
         final int width = getMeasuredWidth();
         final int height = getMeasuredHeight();
 
@@ -637,9 +1192,36 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         if (getChildCount() == 0) {
             return;
         }
+        final boolean translationOffset = enableTranslationOffset &&
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        if (translationOffset || mTranslationOffset) {
+            // with a translation offset the children are always laid out at rest
+            final float translation = translationOffset ? mCurrentTargetOffsetTop : 0;
+            ViewCompat.setTranslationY(mHeadview, translation);
+            ViewCompat.setTranslationY(getContentView(), translation);
+            mTranslationOffset = translationOffset;
+        }
+        final int layoutOffsetTop = mTranslationOffset ? 0 : mCurrentTargetOffsetTop;
+        if (!mHeadMeasureSkipped) {
+            layoutHeadview(layoutOffsetTop);
+        }
+
+        final View content = getContentView();
+        MarginLayoutParams lp = (MarginLayoutParams) content.getLayoutParams();
+        final int childLeft = getPaddingLeft() + lp.leftMargin;
+        final int childTop = layoutOffsetTop + getPaddingTop() + lp.topMargin;
+        final int childRight = childLeft + content.getMeasuredWidth();
+        final int childBottom = childTop + content.getMeasuredHeight();
+        content.layout(childLeft, childTop, childRight, childBottom);
+        if (DEBUG)
+            Log.d(TAG, String.format("@@ onLayout() %d : content [%d,%d,%d,%d] ",
+                    getChildAt(0) == mHeadview ? 1 : 0, childLeft, childTop, childRight, childBottom));
+    }
+
+    private void layoutHeadview(int layoutOffsetTop) {
         MarginLayoutParams lp = (MarginLayoutParams) mHeadview.getLayoutParams();
         final int headViewLeft = getPaddingLeft() + lp.leftMargin;
-        final int headViewTop = mCurrentTargetOffsetTop - mHeadview.getMeasuredHeight() +
+        final int headViewTop = layoutOffsetTop - mHeadview.getMeasuredHeight() +
                 getPaddingTop() + lp.topMargin;
         final int headViewRight = headViewLeft + mHeadview.getMeasuredWidth();
         final int headViewBottom = headViewTop + mHeadview.getMeasuredHeight();
@@ -647,17 +1229,59 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         if (DEBUG)
             Log.d(TAG, String.format("@@ onLayout() : mHeadview [%d,%d,%d,%d] ",
                     headViewLeft, headViewTop, headViewRight, headViewBottom));
+    }
 
-        final View content = getContentView();
-        lp = (MarginLayoutParams) content.getLayoutParams();
-        final int childLeft = getPaddingLeft() + lp.leftMargin;
-        final int childTop = mCurrentTargetOffsetTop + getPaddingTop() + lp.topMargin;
-        final int childRight = childLeft + content.getMeasuredWidth();
-        final int childBottom = childTop + content.getMeasuredHeight();
-        content.layout(childLeft, childTop, childRight, childBottom);
-        if (DEBUG)
-            Log.d(TAG, String.format("@@ onLayout() %d : content [%d,%d,%d,%d] ",
-                    getChildAt(0) == mHeadview ? 1 : 0, childLeft, childTop, childRight, childBottom));
+    /**
+     * @return Whether the head is entirely above the top edge, it is neither measured
+     * nor drawn then.
+     */
+    private boolean isHeadViewHidden() {
+        return mCurrentTargetOffsetTop == 0 && !isRefreshing();
+    }
+
+    /**
+     * Request a layout if the head was skipped while it was hidden, onMeasure()
+     * measures it once it is pulled down. It is not drawn until then.
+     */
+    private void requestHeadviewMeasure() {
+        if (mHeadMeasureSkipped && !isLayoutRequested()) {
+            requestLayout();
+        }
+    }
+
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (mTarget == null) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        if (child == mHeadview && (mHeadMeasureSkipped || isHeadViewHidden())) {
+            return false;
+        }
+        if (mTranslationOffset) {
+            // the visible parts move with the translation, which does not record this
+            // layout again, a clip recorded here would stay where it was
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        // draw only the visible part of the child: the head above the content,
+        // the content below the top padding
+        final int contentTop = getTargetTop();
+        final int clipTop;
+        final int clipBottom;
+        if (child == mHeadview) {
+            clipTop = Math.max(getPaddingTop(), child.getTop() + (int) ViewCompat.getTranslationY(child));
+            clipBottom = contentTop;
+        } else {
+            clipTop = Math.max(getPaddingTop(), contentTop);
+            clipBottom = getHeight() - getPaddingBottom();
+        }
+        if (clipTop >= clipBottom) {
+            return false;
+        }
+        final int saveCount = canvas.save();
+        canvas.clipRect(0, clipTop, getWidth(), clipBottom);
+        final boolean result = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return result;
     }
 
     @Override
@@ -671,7 +1295,13 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
             throw new IllegalStateException("CustomSwipeRefreshLayout can host one child content view.");
         }
 
-        measureChildWithMargins(mHeadview, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        if (isHeadViewHidden() && mTarget != null) {
+            // measured on the layout requested once it is pulled down
+            mHeadMeasureSkipped = true;
+        } else {
+            mHeadMeasureSkipped = false;
+            measureChildWithMargins(mHeadview, widthMeasureSpec, 0, heightMeasureSpec, 0);
+        }
 
         final View content = getContentView();
         if (getChildCount() > 0) {
@@ -738,66 +1368,205 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
     public boolean dispatchTouchEvent(MotionEvent event) {
         if (DEBUG)
             Log.d(TAG, "dispatchTouchEvent() start ");
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            mContentOwnsGesture = false;
+            mHandedOff = false;
+        }
+        if (mHandedOff) {
+            // keep following the finger for the velocity at the end of the gesture
+            mVelocityEstimator.addSample(event.getEventTime(), event.getY() + mHandOffPositionBase);
+            if (event.getAction() == MotionEvent.ACTION_UP) {
+                final View flingTarget = findFlingableContent();
+                final int velocityY = flingTarget != null ? getHandOffFlingVelocity() : 0;
+                if (velocityY != 0) {
+                    // the content only saw the end of the swipe, and would fling it on its own.
+                    // Cancel its gesture first, a cancel stops the scrolling of the content.
+                    final MotionEvent cancel = MotionEvent.obtain(event);
+                    cancel.setAction(MotionEvent.ACTION_CANCEL);
+                    super.dispatchTouchEvent(cancel);
+                    cancel.recycle();
+                    flingContent(flingTarget, velocityY);
+                    mHandedOff = false;
+                    mHasDownEvent = false;
+                    return true;
+                }
+            }
+        }
         boolean ret = super.dispatchTouchEvent(event);
         if (event.getAction() == MotionEvent.ACTION_DOWN)
             ret = true;
+        if (event.getAction() == MotionEvent.ACTION_UP || event.getAction() == MotionEvent.ACTION_CANCEL) {
+            // the content may have taken the end of the gesture without this layout seeing it
+            mHasDownEvent = false;
+        }
+        if (mHandOffToContent) {
+            mHandOffToContent = false;
+            handOffToContent(event);
+        }
         if (DEBUG)
             Log.d(TAG, "dispatchTouchEvent() " + ret);
         return ret;
     }
 
-    @Override
-    public boolean onInterceptTouchEvent(MotionEvent ev) {
+    /**
+     * Start a gesture on the content, so that the rest of the current gesture
+     * scrolls the content. The ACTION_DOWN is put below the given event by the touch
+     * slop and the movement the head did not consume, so the ACTION_MOVE that
+     * follows at the position of the event starts scrolling the content right away
+     * by that movement. Moving past the slop in the first ACTION_MOVE also keeps the
+     * content from showing a press or detecting a long press.
+     */
+    private void handOffToContent(MotionEvent event) {
         if (DEBUG)
-            Log.d(TAG, "onInterceptTouchEvent() start " + ev);
-        ensureTarget();
-        boolean handled = false;
-        float curY = ev.getY();
+            Log.d(TAG, "handOffToContent() delta = " + mHandOffDelta);
+        mContentOwnsGesture = true;
+        mHandedOff = true;
+        mVelocityEstimator.addSample(event.getEventTime(), event.getY() + mHandOffPositionBase);
+        final MotionEvent down = MotionEvent.obtain(event);
+        down.setAction(MotionEvent.ACTION_DOWN);
+        down.offsetLocation(0, mTouchSlop + mHandOffDelta);
+        super.dispatchTouchEvent(down);
+        down.recycle();
+        final MotionEvent move = MotionEvent.obtain(event);
+        move.setAction(MotionEvent.ACTION_MOVE);
+        super.dispatchTouchEvent(move);
+        move.recycle();
+    }
 
-        if (mInReturningAnimation && !isKeepTopRefreshingHead() &&
-                ev.getAction() == MotionEvent.ACTION_DOWN) {
-            mInReturningAnimation = false;
+    /**
+     * @return the velocity to fling the content handed off the current gesture with,
+     * in px/s, the velocity of the whole swipe measured from the head before the
+     * hand-off and from the finger after it, or 0 if it is too slow to fling.
+     */
+    private int getHandOffFlingVelocity() {
+        if (mVelocityEstimator.isStopped(SystemClock.uptimeMillis()) ||
+                !mVelocityEstimator.computeEstimate()) {
+            return 0;
+        }
+        // the content scrolls down when the finger moves up
+        final int velocityY = (int) (-mVelocityEstimator.getVelocity() * 1000);
+        if (Math.abs(velocityY) < mMinimumFlingVelocity) {
+            return 0;
+        }
+        return Math.max(-mMaximumFlingVelocity, Math.min(velocityY, mMaximumFlingVelocity));
+    }
+
+    /**
+     * @return the innermost view under the finger that scrolls vertically and can be
+     * flung, or null.
+     */
+    private View findFlingableContent() {
+        ensureHitPath(mDownX, mDownY);
+        for (int i = mHitPathSize - 1; i >= 0; i--) {
+            final View view = mHitPath[i];
+            if (view instanceof ScrollView || view instanceof WebView) {
+                return view;
+            } else if (view instanceof AbsListView) {
+                // no public fling below API 21, the list flings with what it received
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP ? view : null;
+            } else if (ScrollCapabilityRegistry.hasRecyclerView() &&
+                    RecyclerViewScrollCapabilityProvider.isRecyclerView(view)) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fling a view found by findFlingableContent().
+     *
+     * @param velocityY in px/s, positive to scroll the content down
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void flingContent(View view, int velocityY) {
+        if (view instanceof ScrollView) {
+            ((ScrollView) view).fling(velocityY);
+        } else if (view instanceof WebView) {
+            ((WebView) view).flingScroll(0, velocityY);
+        } else if (view instanceof AbsListView) {
+            ((AbsListView) view).fling(velocityY);
+        } else {
+            RecyclerViewScrollCapabilityProvider.fling(view, velocityY);
         }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (DEBUG)
+            Log.d(TAG, "onInterceptTouchEvent() start " + ev);
+        ensureTarget();
+        boolean handled = false;
+        float curY = ev.getY();
 
         if (!isEnabled()) {
             return false;
         }
 
+        boolean caughtHead = false;
+        if (ev.getAction() == MotionEvent.ACTION_DOWN && mInReturningAnimation &&
+                !(isKeepTopRefreshingHead() && isRefreshing())) {
+            // catch the head where it is and keep dragging it from there
+            caughtHead = stopReturningAnimation() && mCurrentTargetOffsetTop > 0;
+        }
+
+        // the content reports its scrolling through nested scrolling, or owns the
+        // rest of the gesture, no need to probe it
+        if (mContentOwnsGesture ||
+                (mNestedScrollInProgress && ev.getAction() != MotionEvent.ACTION_DOWN)) {
+            mPrevY = curY;
+            return false;
+        }
+
         // record the first event:
         if (ev.getAction() == MotionEvent.ACTION_DOWN) {
             mCurrPercentage = 0;
-            mDownEvent = MotionEvent.obtain(ev);
-            mPrevY = mDownEvent.getY();
+            mHasDownEvent = true;
+            mCaughtRefreshingHead = caughtHead && mRefreshing;
+            mDownX = ev.getX();
+            mDownY = ev.getY();
+            mPrevY = mDownY;
+            mVelocityEstimator.clear();
+            mPullRemainder = 0;
+            mReleaseVelocity = 0;
+            stopWatchingFling();
+            buildHitPath(mDownX, mDownY);
             mCheckValidMotionFlag = true;
-            checkHorizontalMove = true;
+            isHorizontalScroll = false;
+            mDirectionClassifier.reset(mDownX, mDownY);
+            if (caughtHead) {
+                // the head is visible, take the whole gesture without waiting for the touch slop
+                return true;
+            }
         } else if (ev.getAction() == MotionEvent.ACTION_MOVE) {
-            if (mDownEvent != null) {
-                float yDiff = Math.abs(curY - mDownEvent.getY());
+            if (mHasDownEvent) {
+                float yDiff = Math.abs(curY - mDownY);
 
                 if (enableHorizontalScroll) {
-
-                    MotionEvent event = MotionEvent.obtain(ev);
-                    int horizontalScrollDirection = ev.getX() > mDownEvent.getX() ? -1 : 1;
-                    float xDiff = Math.abs(ev.getX() - mDownEvent.getX());
                     if (isHorizontalScroll) {
                         if (DEBUG)
                             Log.d(TAG, "onInterceptTouchEvent(): in horizontal scroll");
                         mPrevY = curY;
-                        checkHorizontalMove = false;
-                        return false;
-                    } else if (xDiff <= mTouchSlop) {
-                        checkHorizontalMove = true;
-                        //return false;
-                    } else if (canViewScrollHorizontally(mTarget, event, horizontalScrollDirection) &&
-                            checkHorizontalMove && xDiff > 2 * yDiff) {
-                        if (DEBUG)
-                            Log.d(TAG, "onInterceptTouchEvent(): start horizontal scroll");
-                        mPrevY = curY;
-                        isHorizontalScroll = true;
-                        checkHorizontalMove = false;
                         return false;
-                    } else {
-                        checkHorizontalMove = false;
+                    }
+
+                    if (mDirectionClassifier.getAxis() == GestureDirectionClassifier.AXIS_UNDECIDED) {
+                        int axis = mDirectionClassifier.addSample(ev.getX(), curY);
+                        if (axis == GestureDirectionClassifier.AXIS_UNDECIDED) {
+                            mPrevY = curY;
+                            return false;
+                        } else if (axis == GestureDirectionClassifier.AXIS_HORIZONTAL) {
+                            // probe only once, when the gesture is found to be horizontal
+                            int horizontalScrollDirection = ev.getX() > mDownX ? -1 : 1;
+                            if (canChildrenScroolHorizontally(ev.getX(), curY, horizontalScrollDirection)) {
+                                if (DEBUG)
+                                    Log.d(TAG, "onInterceptTouchEvent(): start horizontal scroll");
+                                mPrevY = curY;
+                                isHorizontalScroll = true;
+                                return false;
+                            }
+                            // nothing under the finger scrolls horizontally
+                            mDirectionClassifier.lock(GestureDirectionClassifier.AXIS_VERTICAL);
+                        }
                     }
                 }
 
@@ -807,9 +1576,9 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
                 }
             }
         } else if (ev.getAction() == MotionEvent.ACTION_UP) {
-            if (mDownEvent != null) {
+            if (mHasDownEvent) {
 
-                float yDiff = Math.abs(curY - mDownEvent.getY());
+                float yDiff = Math.abs(curY - mDownY);
                 if (enableHorizontalScroll && isHorizontalScroll) {
                     if (DEBUG)
                         Log.d(TAG, "onInterceptTouchEvent(): finish horizontal scroll");
@@ -824,9 +1593,10 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         }
 
 
-        MotionEvent event = MotionEvent.obtain(ev);
-        if (!mInReturningAnimation && !canViewScrollUp(mTarget, event)) {
+        if (!mInReturningAnimation && !canContentScrollUp(ev.getX(), curY)) {
+            mInInterceptTouchEvent = true;
             handled = onTouchEvent(ev);
+            mInInterceptTouchEvent = false;
             if (DEBUG)
                 Log.d(TAG, "onInterceptTouchEvent(): handled = onTouchEvent(event);" + handled);
         } else {
@@ -842,9 +1612,170 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
 
     @Override
     public void requestDisallowInterceptTouchEvent(boolean b) {
-        // Nope.
+        if (b && mHasDownEvent && hasLegacyScrollerOnHitPath()) {
+            // Nope. Vertical scrollers without nested scrolling ask for the events
+            // as soon as they scroll, keep probing them so that the refresh head
+            // can still be pulled when they reach their top in this gesture.
+            return;
+        }
+        // otherwise onInterceptTouchEvent() is not called any more until the
+        // next ACTION_DOWN, which skips all the probing for this gesture
+        super.requestDisallowInterceptTouchEvent(b);
+    }
+
+    /**
+     * @return Whether a vertically scrolling view without nested scrolling is
+     * under the finger of the current gesture, as told by its scroll capability
+     * provider.
+     */
+    private boolean hasLegacyScrollerOnHitPath() {
+        ensureHitPath(mDownX, mDownY);
+        for (int i = 0; i < mHitPathSize; i++) {
+            final View view = mHitPath[i];
+            if (!ViewCompat.isNestedScrollingEnabled(view) &&
+                    mScrollCapabilityRegistry.scrollsVertically(view)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && !mInReturningAnimation
+                && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        ensureTarget();
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        // dispatch up to the nested parent
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
+        mCurrentTargetOffsetTop = getTargetTop() - mTargetOriginalTop;
+        mVelocityEstimator.clear();
+        mPullRemainder = 0;
+        mNestedScrollInProgress = true;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        // the content scrolls down while the refresh head is visible,
+        // move the head back up before the content starts to scroll
+        if (dy > 0 && mCurrentTargetOffsetTop > 0) {
+            final int offsetBefore = mCurrentTargetOffsetTop;
+            // finger movement per px of head movement is 1 / resistance unless refreshing
+            final float resistance = isRefreshing() ? 1f : mResistanceFactor;
+            if (pullBy(-dy)) {
+                // the head may close with less than dy, the content scrolls with the rest
+                consumed[1] = mCurrentTargetOffsetTop > 0 ? dy :
+                        Math.min(dy, (int) Math.ceil(offsetBefore / resistance));
+            }
+        }
+
+        // let the nested parent consume the rest
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed,
+                               int dxUnconsumed, int dyUnconsumed) {
+        // dispatch to the nested parent first
+        dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                mParentOffsetInWindow);
+
+        // the content reached its top, pull the refresh head down with what is left
+        final int dy = dyUnconsumed + mParentOffsetInWindow[1];
+        if (dy < 0) {
+            pullBy(-dy);
+        }
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        mNestedScrollInProgress = false;
+        if (!mRefreshing && mCurrentTargetOffsetTop > 0) {
+            finishPull();
+        }
+        // dispatch up to the nested parent
+        stopNestedScroll();
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        return dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        if (enableOverScrollCapture && consumed && velocityY < 0) {
+            watchFling(target, velocityY);
+        }
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    // NestedScrollingChild
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mNestedScrollingChildHelper.setNestedScrollingEnabled(enabled);
     }
 
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedScrollingChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedScrollingChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
+                                        int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed,
+                dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedScrollingChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
@@ -857,123 +1788,62 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
 
         final int action = event.getAction();
         boolean handled = false;
-        int curTargetTop = mTarget.getTop();
-        mCurrentTargetOffsetTop = curTargetTop - mTargetOriginalTop;
+        mCurrentTargetOffsetTop = getTargetTop() - mTargetOriginalTop;
         switch (action) {
 
             case MotionEvent.ACTION_MOVE:
-                if (mDownEvent != null && !mInReturningAnimation) {
+                if (mHasDownEvent && !mInReturningAnimation) {
                     final float eventY = event.getY();
-                    float yDiff = eventY - mDownEvent.getY();
-
-
-                    boolean isScrollUp = eventY - mPrevY > 0;
+                    float yDiff = eventY - mDownY;
 
                     // if yDiff is large enough to be counted as one move event
                     if (mCheckValidMotionFlag && (yDiff > mTouchSlop || yDiff < -mTouchSlop)) {
                         mCheckValidMotionFlag = false;
                     }
-                    // if refresh head moving with the mTarget is enabled
-                    if (!keepTopRefreshingHead) {
-                        // when it is refreshing
-                        if (isRefreshing()) {
-                            // scroll down
-                            if (!isScrollUp) {
-                                // when the top of mTarget reach the parent top
-                                if (curTargetTop <= mTargetOriginalTop) {
-                                    mPrevY = event.getY();
-                                    handled = false;
-                                    updateContentOffsetTop(mTargetOriginalTop, true);
-                                    //mStopInterceptFlag = true;
-                                    break;
-                                }
-                            }
-                            // scroll up
-                            else {
-                                // when refresh head is entirely visible
-                                if (curTargetTop >= mDistanceToTriggerSync) {
-                                    mPrevY = event.getY();
-                                    handled = true;
-                                    updateContentOffsetTop(mDistanceToTriggerSync, true);
-                                    break;
-                                }
-                            }
-
-                            setTargetOffsetTop((int) ((eventY - mPrevY)), true);
-                            mPrevY = event.getY();
-                            handled = true;
-                            break;
-                        }
-                    }
-                    // keep refresh head above mTarget when refreshing
-                    else {
-                        if (isRefreshing()) {
-                            mPrevY = event.getY();
-                            handled = false;
-                            break;
+                    if (canCoalescePull(eventY - mPrevY)) {
+                        // the head is already being dragged, apply the movement of all the
+                        // samples received before the next frame at once
+                        mPendingPullDelta += eventY - mPrevY;
+                        if (!mPendingPullScheduled) {
+                            mPendingPullScheduled = true;
+                            mFrameClock.postFrameCallback(mApplyPendingPull);
                         }
-                    }
-
-                    // curTargetTop is bigger than trigger
-                    if (curTargetTop >= mDistanceToTriggerSync) {
-                        // User movement passed distance; trigger a refresh
-                        if (enableTopProgressBar)
-                            mTopProgressBar.setTriggerPercentage(1f);
-
-                        removeCallbacks(mCancel);
-                        if (refresshMode == REFRESH_MODE_SWIPE) {
-                            startRefresh();
-                            handled = true;
-                            break;
-                        }
-                    }
-                    // curTargetTop is not bigger than trigger
-                    else {
-                        // Just track the user's movement
-                        setTriggerPercentage(
-                                mAccelerateInterpolator.getInterpolation(
-                                        (float) mCurrentTargetOffsetTop / mTriggerOffset));
-
-                        if (!isScrollUp && (curTargetTop < mTargetOriginalTop + 1)) {
-                            removeCallbacks(mCancel);
-                            mPrevY = event.getY();
-                            handled = false;
-                            // clear the progressBar
-                            mTopProgressBar.setTriggerPercentage(0f);
-                            break;
-                        } else {
-                            updatePositionTimeout(true);
+                        handled = true;
+                    } else {
+                        flushPendingPull();
+                        handled = pullBy(eventY - mPrevY);
+                        if (!handled && !mInInterceptTouchEvent && eventY < mPrevY &&
+                                isRefreshing() && !keepTopRefreshingHead &&
+                                mCurrentTargetOffsetTop <= 0) {
+                            // the head is collapsed while this layout owns the gesture,
+                            // pass the rest of it to the content so that it scrolls
+                            mHandOffToContent = true;
+                            mHandOffDelta = mPrevY - eventY;
+                            mHandOffPositionBase = mCurrentTargetOffsetTop - mPrevY;
                         }
-
                     }
-
-                    handled = true;
-                    if (curTargetTop >= mTargetOriginalTop && !isRefreshing())
-                        setTargetOffsetTop((int) ((eventY - mPrevY) * mResistanceFactor), false);
-                    else
-                        setTargetOffsetTop((int) ((eventY - mPrevY)), true);
-                    mPrevY = event.getY();
+                    mPrevY = eventY;
                 }
 
                 break;
             case MotionEvent.ACTION_UP:
-                if (mRefreshing)
+                flushPendingPull();
+                mHasDownEvent = false;
+                if (mRefreshing) {
+                    settleCaughtRefreshingHead();
                     break;
-
-                if (mCurrentTargetOffsetTop >= mTriggerOffset &&
-                        refresshMode == REFRESH_MODE_PULL) {
-                    startRefresh();
-                    handled = true;
-                } else {
-                    updatePositionTimeout(false);
-                    handled = true;
                 }
+
+                finishPull();
+                handled = true;
                 break;
             case MotionEvent.ACTION_CANCEL:
-                if (mDownEvent != null) {
-                    mDownEvent.recycle();
-                    mDownEvent = null;
+                flushPendingPull();
+                mHasDownEvent = false;
+                if (mRefreshing) {
+                    settleCaughtRefreshingHead();
                 }
+                cancelPredictedRefresh();
                 break;
         }
 
@@ -982,20 +1852,262 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         return handled;
     }
 
+    /**
+     * Move the content and the refresh head by the given vertical movement of a
+     * pull gesture, either from touch events or from nested scrolling.
+     *
+     * @param deltaY finger movement in pixels, positive when pulling down
+     * @return whether the movement was consumed by the refresh head
+     */
+    private boolean pullBy(float deltaY) {
+        final int curTargetTop = getTargetTop();
+        mCurrentTargetOffsetTop = curTargetTop - mTargetOriginalTop;
+        boolean isScrollUp = deltaY > 0;
+
+        // if refresh head moving with the mTarget is enabled
+        if (!keepTopRefreshingHead) {
+            // when it is refreshing
+            if (isRefreshing()) {
+                // scroll down
+                if (!isScrollUp) {
+                    // when the top of mTarget reach the parent top
+                    if (curTargetTop <= mTargetOriginalTop) {
+                        updateContentOffsetTop(mTargetOriginalTop, true);
+                        return false;
+                    }
+                }
+                // scroll up
+                else {
+                    // when refresh head is entirely visible
+                    if (curTargetTop >= mDistanceToTriggerSync) {
+                        updateContentOffsetTop(mDistanceToTriggerSync, true);
+                        return true;
+                    }
+                }
+
+                moveTargetBy(deltaY, true);
+                mVelocityEstimator.addSample(SystemClock.uptimeMillis(), mCurrentTargetOffsetTop);
+                return true;
+            }
+        }
+        // keep refresh head above mTarget when refreshing
+        else {
+            if (isRefreshing()) {
+                return false;
+            }
+        }
+
+        // curTargetTop is bigger than trigger
+        if (curTargetTop >= mDistanceToTriggerSync) {
+            // User movement passed distance; trigger a refresh
+            if (enableTopProgressBar)
+                mTopProgressBar.setTriggerPercentage(1f);
+
+            cancelPositionTimeout();
+            if (refresshMode == REFRESH_MODE_SWIPE) {
+                startRefresh();
+                return true;
+            }
+        }
+        // curTargetTop is not bigger than trigger
+        else {
+            // Just track the user's movement
+            setTriggerPercentage(
+                    mAccelerateInterpolator.getInterpolation(
+                            (float) mCurrentTargetOffsetTop / mTriggerOffset));
+
+            if (!isScrollUp && (curTargetTop < mTargetOriginalTop + 1)) {
+                cancelPositionTimeout();
+                cancelPredictedRefresh();
+                // clear the progressBar
+                mTopProgressBar.setTriggerPercentage(0f);
+                return false;
+            } else {
+                updatePositionTimeout(true);
+            }
+
+        }
+
+        if (curTargetTop >= mTargetOriginalTop && !isRefreshing()) {
+            moveTargetBy(deltaY * mResistanceFactor, false);
+            mVelocityEstimator.addSample(SystemClock.uptimeMillis(), mCurrentTargetOffsetTop);
+            checkPredictiveRefresh();
+        } else {
+            moveTargetBy(deltaY, true);
+            mVelocityEstimator.addSample(SystemClock.uptimeMillis(), mCurrentTargetOffsetTop);
+        }
+        return true;
+    }
+
+    /**
+     * Move the content by a fractional offset. The part below a pixel is kept for
+     * the next move, so that slow drags made of small deltas still move the head.
+     */
+    private void moveTargetBy(float offset, boolean changeHeightOnly) {
+        offset += mPullRemainder;
+        final int pixels = (int) offset;
+        mPullRemainder = offset - pixels;
+        setTargetOffsetTop(pixels, changeHeightOnly);
+        if (mCurrentTargetOffsetTop <= 0) {
+            // clamped at the top, nothing is left to carry
+            mPullRemainder = 0;
+        }
+    }
+
+    /**
+     * Call onRefresh() ahead of the refresh trigger if the pull motion is going
+     * to reach the trigger within PREDICTIVE_REFRESH_LOOK_AHEAD ms.
+     */
+    private void checkPredictiveRefresh() {
+        if (!enablePredictiveRefresh || mPredictedRefresh) {
+            return;
+        }
+        if (!mVelocityEstimator.computeEstimate() ||
+                mVelocityEstimator.getVelocity() < mPredictiveRefreshMinVelocity) {
+            return;
+        }
+
+        final int trigger = refresshMode == REFRESH_MODE_SWIPE ?
+                mDistanceToTriggerSync - mTargetOriginalTop : mTriggerOffset;
+        final float predictedTop = mCurrentTargetOffsetTop +
+                mVelocityEstimator.predictDistance(PREDICTIVE_REFRESH_LOOK_AHEAD);
+        if (predictedTop >= trigger && checkCanDoRefresh()) {
+            if (DEBUG)
+                Log.d(TAG, "checkPredictiveRefresh() predicted top = " + predictedTop);
+            mPredictedRefresh = true;
+            mPredictedRefreshComplete = false;
+            if (mListener != null)
+                mListener.onRefresh();
+        }
+    }
+
+    /**
+     * Roll back a refresh started by checkPredictiveRefresh() when the user retracts.
+     */
+    private void cancelPredictedRefresh() {
+        if (mPredictedRefresh) {
+            mPredictedRefresh = false;
+            mPredictedRefreshComplete = false;
+            if (mRefreshCancelListener != null)
+                mRefreshCancelListener.onRefreshCancel();
+        }
+    }
+
+    /**
+     * @param deltaY movement of the current touch event, in px
+     * @return Whether the movement of the current touch event can be applied on
+     * the next frame, which is only the case when it is known to be consumed by
+     * the refresh head: the head stays visible after the pending movement and
+     * this one. Otherwise the part beyond the top has to reach the content.
+     */
+    private boolean canCoalescePull(float deltaY) {
+        if (!enableTouchCoalescing || mCurrentTargetOffsetTop <= 0 ||
+                (keepTopRefreshingHead && isRefreshing())) {
+            return false;
+        }
+        final float resistance = isRefreshing() ? 1f : mResistanceFactor;
+        return mCurrentTargetOffsetTop + (mPendingPullDelta + deltaY) * resistance > 0;
+    }
+
+    /**
+     * Apply the movement accumulated since the last frame right away.
+     */
+    private void flushPendingPull() {
+        if (mPendingPullScheduled) {
+            mFrameClock.removeFrameCallback(mApplyPendingPull);
+            applyPendingPull();
+        }
+    }
+
+    private void applyPendingPull() {
+        mPendingPullScheduled = false;
+        final float delta = mPendingPullDelta;
+        mPendingPullDelta = 0;
+        if (delta != 0 && !mInReturningAnimation) {
+            pullBy(delta);
+        }
+    }
+
+    /**
+     * Called when the finger leaves a pull gesture: start refreshing if the
+     * head was pulled far enough in pull mode, or move everything back.
+     */
+    private void finishPull() {
+        updateReleaseVelocity();
+        if (mCurrentTargetOffsetTop >= mTriggerOffset &&
+                refresshMode == REFRESH_MODE_PULL) {
+            startRefresh();
+        } else {
+            updatePositionTimeout(false);
+        }
+    }
+
+    /**
+     * Keep the velocity of the head when the finger leaves it for the next return motion.
+     */
+    private void updateReleaseVelocity() {
+        mReleaseVelocity = 0;
+        if (mCurrentTargetOffsetTop > 0 && !mVelocityEstimator.isStopped(SystemClock.uptimeMillis()) &&
+                mVelocityEstimator.computeEstimate()) {
+            mReleaseVelocity = mVelocityEstimator.getVelocity() * 1000;
+        }
+    }
+
+    /**
+     * Called when the finger leaves a gesture that caught the head in its return
+     * animation while refreshing: nothing else moves the head until the refresh
+     * completes, so start the return animation again from where the head was left.
+     * A head collapsed by the gesture is left at the top.
+     */
+    private void settleCaughtRefreshingHead() {
+        if (!mCaughtRefreshingHead) {
+            return;
+        }
+        mCaughtRefreshingHead = false;
+        mCurrentTargetOffsetTop = getTargetTop() - mTargetOriginalTop;
+        if (mCurrentTargetOffsetTop <= 0 || mInReturningAnimation) {
+            return;
+        }
+        updateReleaseVelocity();
+        if (refresshMode == REFRESH_MODE_PULL) {
+            mReturnToTrigerPosition.run();
+        } else {
+            mReturnToStartPosition.run();
+        }
+    }
+
     private void startRefresh() {
         if (!checkCanDoRefresh()) {
             updatePositionTimeout(false);
             return;
         }
-        removeCallbacks(mCancel);
+        cancelPositionTimeout();
         setRefreshState(State.STATE_REFRESHING);
         setRefreshing(true);
-        if (mListener != null)
+        if (mPredictedRefresh) {
+            // onRefresh() has already been called ahead of the trigger
+            mPredictedRefresh = false;
+            if (mPredictedRefreshComplete) {
+                mPredictedRefreshComplete = false;
+                setRefreshing(false);
+            }
+        } else if (mListener != null) {
             mListener.onRefresh();
+        }
+    }
+
+    /**
+     * @return the current top of the content, including its offset.
+     */
+    private int getTargetTop() {
+        if (mTranslationOffset) {
+            return mTarget.getTop() + (int) ViewCompat.getTranslationY(mTarget);
+        }
+        return mTarget.getTop();
     }
 
     private void updateContentOffsetTop(int targetTop, boolean changeHeightOnly) {
-        final int currentTop = mTarget.getTop();
+        final int currentTop = getTargetTop();
         if (targetTop < mTargetOriginalTop) {
             targetTop = mTargetOriginalTop;
         }
@@ -1008,21 +2120,148 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
             return;
         // check whether the mTarget total top offset is going to be smaller than 0
         if (mCurrentTargetOffsetTop + offset >= 0) {
-            mTarget.offsetTopAndBottom(offset);
-            mHeadview.offsetTopAndBottom(offset);
+            requestHeadviewMeasure();
+            if (mCurrentTargetOffsetTop + offset > 0) {
+                startMotionLayers();
+            }
+            final int offsetBefore = mCurrentTargetOffsetTop;
             mCurrentTargetOffsetTop += offset;
-            invalidate();
+            if (mTranslationOffset) {
+                // only changes a property of the display lists, nothing is recorded again
+                ViewCompat.setTranslationY(mTarget, mCurrentTargetOffsetTop);
+                ViewCompat.setTranslationY(mHeadview, mCurrentTargetOffsetTop);
+                if (offsetBefore == 0 || mCurrentTargetOffsetTop == 0) {
+                    // except when the head starts or stops being skipped while hidden
+                    invalidate();
+                }
+            } else {
+                mTarget.offsetTopAndBottom(offset);
+                mHeadview.offsetTopAndBottom(offset);
+                invalidate();
+            }
         } else {
             updateContentOffsetTop(mTargetOriginalTop, changeHeightOnly);
         }
         updateHeadViewState(changeHeightOnly);
+        if (mCurrentTargetOffsetTop <= 0) {
+            // back at the top, the content may keep scrolling in this gesture and
+            // would draw its layer again every frame
+            stopMotionLayers();
+        } else {
+            updateMotionLayers();
+        }
+    }
+
+    /**
+     * Put the head and the content on hardware layers while they move, so that
+     * moving them does not draw them again.
+     */
+    private void startMotionLayers() {
+        if (!enableHardwareLayers || mMotionLayersActive) {
+            return;
+        }
+        mMotionLayersActive = true;
+        mMotionLayersState = -1;
+        // a content that keeps changing would have its layer drawn again every frame,
+        // only the content view itself is checked, its tree can be large
+        mContentLayer = setMotionLayer(mTarget, mContentLayer, !hasAnimatingContent(mTarget, false));
+        updateMotionLayers();
+    }
+
+    /**
+     * Check the head again whenever its state changes, the head may start or stop
+     * an animation of its own, e.g. a progress while refreshing.
+     */
+    private void updateMotionLayers() {
+        if (!mMotionLayersActive || currentState.getRefreshState() == mMotionLayersState) {
+            return;
+        }
+        mMotionLayersState = currentState.getRefreshState();
+        mHeadLayer = setMotionLayer(mHeadview, mHeadLayer, !hasAnimatingContent(mHeadview, true));
+    }
+
+    private void stopMotionLayers() {
+        if (!mMotionLayersActive) {
+            return;
+        }
+        mMotionLayersActive = false;
+        mHeadLayer = setMotionLayer(mHeadview, mHeadLayer, false);
+        mContentLayer = setMotionLayer(mTarget, mContentLayer, false);
+    }
+
+    /**
+     * @param hasLayer Whether the view is on a layer set by this layout.
+     * @param useLayer Whether the view should be on a hardware layer.
+     * @return Whether the view is on a layer set by this layout.
+     */
+    private static boolean setMotionLayer(View view, boolean hasLayer, boolean useLayer) {
+        if (useLayer && !hasLayer) {
+            if (ViewCompat.getLayerType(view) != ViewCompat.LAYER_TYPE_NONE) {
+                return false;
+            }
+            ViewCompat.setLayerType(view, ViewCompat.LAYER_TYPE_HARDWARE, null);
+            return true;
+        } else if (!useLayer && hasLayer) {
+            ViewCompat.setLayerType(view, ViewCompat.LAYER_TYPE_NONE, null);
+            return false;
+        }
+        return hasLayer;
+    }
+
+    /**
+     * @param deep Whether to check the children of the view too.
+     * @return Whether the view or one of its children is drawn differently every
+     * frame, by an animation or an indeterminate progress.
+     */
+    private static boolean hasAnimatingContent(View view, boolean deep) {
+        if (view.getVisibility() != View.VISIBLE) {
+            return false;
+        }
+        final Animation animation = view.getAnimation();
+        if (animation != null && !animation.hasEnded()) {
+            return true;
+        }
+        if (view instanceof ProgressBar && ((ProgressBar) view).isIndeterminate()) {
+            return true;
+        }
+        if (deep && view instanceof ViewGroup) {
+            final ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                if (hasAnimatingContent(viewGroup.getChildAt(i), true)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private void updatePositionTimeout(boolean isDelayed) {
-        removeCallbacks(mCancel);
-        if (isDelayed && mReturnToOriginalTimeout <= 0)
+        if (!isDelayed) {
+            // cancel right away
+            mCancelDeadline = SystemClock.uptimeMillis();
+            removeCallbacks(mCancelCheck);
+            mCancelCheckPosted = true;
+            post(mCancelCheck);
+            return;
+        }
+        if (mReturnToOriginalTimeout <= 0) {
+            cancelPositionTimeout();
             return;
-        postDelayed(mCancel, isDelayed ? mReturnToOriginalTimeout : 0);
+        }
+        // only move the deadline, the posted check waits for it
+        mCancelDeadline = SystemClock.uptimeMillis() + mReturnToOriginalTimeout;
+        if (!mCancelCheckPosted) {
+            mCancelCheckPosted = true;
+            postDelayed(mCancelCheck, mReturnToOriginalTimeout);
+        }
+    }
+
+    private void cancelPositionTimeout() {
+        mCancelDeadline = 0;
+        if (mCancelCheckPosted) {
+            mCancelCheckPosted = false;
+            removeCallbacks(mCancelCheck);
+        }
     }
 
 
@@ -1030,11 +2269,149 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         enableHorizontalScroll = isEnable;
     }
 
+    /**
+     * Enable the translation offset: on API 21 and above, the content and the head
+     * are moved with setTranslationY() instead of being moved and redrawn by this
+     * layout, so that pulling the head only updates a property of their display lists.
+     * This helps most when the content is expensive to draw, e.g. a WebView. The
+     * change is applied on the next layout.
+     *
+     * @param isEnable
+     */
+    public void setEnableTranslationOffset(boolean isEnable) {
+        if (enableTranslationOffset != isEnable) {
+            enableTranslationOffset = isEnable;
+            requestLayout();
+        }
+    }
+
+    public boolean isTranslationOffsetEnabled() {
+        return enableTranslationOffset;
+    }
+
+    /**
+     * Enable hardware layers: the head and the content are put on hardware layers
+     * while they are dragged or animated, and taken off once they stop. A view is
+     * left without a layer while it animates its own content, or if it already has
+     * a layer.
+     *
+     * @param isEnable
+     */
+    public void setEnableHardwareLayers(boolean isEnable) {
+        enableHardwareLayers = isEnable;
+        if (!isEnable) {
+            stopMotionLayers();
+        }
+    }
+
+    public boolean isHardwareLayersEnabled() {
+        return enableHardwareLayers;
+    }
+
     public void enableTopProgressBar(boolean isEnable) {
         enableTopProgressBar = isEnable;
         requestLayout();
     }
 
+    /**
+     * Draw the top progress bar with one gradient per frame instead of one circle
+     * per color, and without an off-screen layer when it finishes. It looks the same.
+     * Only used by {@link #PROGRESS_BAR_RENDERER_CANVAS}.
+     *
+     * @param isEnable
+     */
+    public void setEnableProgressBarShader(boolean isEnable) {
+        mCanvasProgressBar.setUseShader(isEnable);
+        invalidate();
+    }
+
+    public boolean isProgressBarShaderEnabled() {
+        return mCanvasProgressBar.isUsingShader();
+    }
+
+    /**
+     * Enable predictive refresh: OnRefreshListener.onRefresh() is called as soon as
+     * the pull motion is predicted to reach the refresh trigger, before it actually
+     * does. If the user retracts afterwards, the listener set by
+     * {@link #setOnRefreshCancelListener(OnRefreshCancelListener)} is notified.
+     *
+     * @param isEnable
+     */
+    public void setEnablePredictiveRefresh(boolean isEnable) {
+        enablePredictiveRefresh = isEnable;
+    }
+
+    public boolean isPredictiveRefreshEnabled() {
+        return enablePredictiveRefresh;
+    }
+
+    /**
+     * Enable touch coalescing: while the refresh head is dragged, the movement of
+     * all the touch events received within one frame is applied once on the next
+     * frame, instead of moving the head and updating its state for every event.
+     *
+     * @param isEnable
+     */
+    public void setEnableTouchCoalescing(boolean isEnable) {
+        enableTouchCoalescing = isEnable;
+        if (!isEnable) {
+            flushPendingPull();
+        }
+    }
+
+    public boolean isTouchCoalescingEnabled() {
+        return enableTouchCoalescing;
+    }
+
+    /**
+     * Enable content top tracking: whether the content can scroll up is probed once
+     * and then kept until the content scrolls or is laid out again, instead of being
+     * probed for every intercepted touch event. Don't enable it if a ScrollUpHandler
+     * or a ScrollCapabilityProvider depends on state that changes without scrolling.
+     *
+     * @param isEnable
+     */
+    public void setEnableContentTopTracking(boolean isEnable) {
+        enableContentTopTracking = isEnable;
+        mContentTopState = CONTENT_TOP_UNKNOWN;
+    }
+
+    public boolean isContentTopTrackingEnabled() {
+        return enableContentTopTracking;
+    }
+
+    /**
+     * Enable overscroll capture: when a fling of a nested scrolling content reaches
+     * the top of the content, the remaining velocity briefly pulls the refresh head
+     * down before it springs back.
+     *
+     * @param isEnable
+     */
+    public void setEnableOverScrollCapture(boolean isEnable) {
+        enableOverScrollCapture = isEnable;
+        if (!isEnable) {
+            stopWatchingFling();
+        }
+    }
+
+    public boolean isOverScrollCaptureEnabled() {
+        return enableOverScrollCapture;
+    }
+
+    /**
+     * Whether a captured fling strong enough to pull the refresh head down to the
+     * refresh trigger starts refreshing. Default is false.
+     *
+     * @param isEnable
+     */
+    public void setEnableOverScrollRefresh(boolean isEnable) {
+        enableOverScrollRefresh = isEnable;
+    }
+
+    public boolean isOverScrollRefreshEnabled() {
+        return enableOverScrollRefresh;
+    }
+
     public void setKeepTopRefreshingHead(boolean isEnable) {
         keepTopRefreshingHead = isEnable;
     }
@@ -1075,6 +2452,89 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         return this.mReturnToHeaderDuration;
     }
 
+    /**
+     * Enable the spring return: the return-to-top and return-to-header motions are
+     * driven by a damped spring seeded with the velocity of the head when it is
+     * released, instead of taking the fixed return durations. The motion ends as soon
+     * as the spring comes to rest, so short pulls settle sooner than long ones.
+     *
+     * @param isEnable
+     */
+    public void setEnableSpringReturn(boolean isEnable) {
+        enableSpringReturn = isEnable;
+    }
+
+    public boolean isSpringReturnEnabled() {
+        return enableSpringReturn;
+    }
+
+    /**
+     * Set the stiffness of the return spring. Default is 400.
+     *
+     * @param stiffness stiffness of the spring, in 1/s^2
+     */
+    public void setSpringStiffness(float stiffness) {
+        this.mSpringStiffness = stiffness;
+    }
+
+    public float getSpringStiffness() {
+        return this.mSpringStiffness;
+    }
+
+    /**
+     * Set the damping ratio of the return spring. Default is 1, a critically damped
+     * spring, which settles as fast as possible without overshooting on its own.
+     *
+     * @param dampingRatio damping ratio of the spring, below 1 the spring bounces
+     */
+    public void setSpringDampingRatio(float dampingRatio) {
+        this.mSpringDampingRatio = dampingRatio;
+    }
+
+    public float getSpringDampingRatio() {
+        return this.mSpringDampingRatio;
+    }
+
+    /**
+     * Set the rate of the progress animation of the top progress bar while refreshing.
+     * The animation is a slow color cycle that looks the same at a lower rate than
+     * the display, and every frame it skips is neither drawn nor rendered. Default is
+     * 30. The motions that follow the swipe gesture always run at every frame, and the
+     * drawable renderer is animated by the system at its own rate.
+     *
+     * @param frameRate frames per second, 0 to draw every frame
+     */
+    public void setRefreshingFrameRate(int frameRate) {
+        this.mRefreshingFrameRate = frameRate;
+        mCanvasProgressBar.setFrameRate(frameRate);
+    }
+
+    public int getRefreshingFrameRate() {
+        return this.mRefreshingFrameRate;
+    }
+
+    /**
+     * Enable reduced motion: while the animator duration scale of the system is 0 or
+     * the battery saver is on, the top progress bar is a static bar while refreshing,
+     * and a headview implementing {@link ReducedMotionHeadLayout} is told to stop its
+     * animations. Enabled by default.
+     *
+     * @param isEnable
+     */
+    public void setEnableReducedMotion(boolean isEnable) {
+        enableReducedMotion = isEnable;
+        if (!isEnable) {
+            mReducedMotionMonitor.stop();
+        } else if (mAttachedToWindow) {
+            mReducedMotionMonitor.start();
+        }
+        updateReducedMotion();
+    }
+
+    public boolean isReducedMotionEnabled() {
+        return enableReducedMotion;
+    }
+
     public void setRefreshCheckHandler(RefreshCheckHandler handler) {
         mRefreshCheckHandler = handler;
     }
@@ -1087,6 +2547,23 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         mScrollLeftOrRightHandler = handler;
     }
 
+    /**
+     * Register the provider used to check whether views of the given class, and of
+     * its subclasses, can scroll. Built-in providers are registered for
+     * RecyclerView, AbsListView, ScrollView, NestedScrollView, WebView and ViewPager.
+     *
+     * @param viewClass
+     * @param provider
+     */
+    public void registerScrollCapabilityProvider(Class<? extends View> viewClass,
+                                                 ScrollCapabilityProvider provider) {
+        mScrollCapabilityRegistry.register(viewClass, provider);
+    }
+
+    public void unregisterScrollCapabilityProvider(Class<? extends View> viewClass) {
+        mScrollCapabilityRegistry.unregister(viewClass);
+    }
+
     public float getResistanceFactor() {
         return mResistanceFactor;
     }
@@ -1134,6 +2611,14 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         void onRefresh();
     }
 
+    /**
+     * Classes that wish to be notified when a predictive refresh is rolled back
+     * should implement this interface.
+     */
+    public interface OnRefreshCancelListener {
+        void onRefreshCancel();
+    }
+
     /**
      * Classes that checking whether refresh can be triggered
      */
@@ -1149,6 +2634,20 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         boolean canScrollLeftOrRight(View view, int direction);
     }
 
+    /**
+     * Classes that check whether views of a registered class can scroll
+     *
+     * @see #registerScrollCapabilityProvider(Class, ScrollCapabilityProvider)
+     */
+    public interface ScrollCapabilityProvider {
+        boolean canScrollUp(View view);
+
+        /**
+         * @param direction Negative to check scrolling left, positive to check scrolling right.
+         */
+        boolean canScrollHorizontally(View view, int direction);
+    }
+
     /**
      * Classes that must be implemented by for custom headview
      *
@@ -1159,6 +2658,20 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
         void onStateChange(State currentState, State lastState);
     }
 
+    /**
+     * Optionally implemented by a custom headview that animates, in addition to
+     * CustomSwipeRefreshHeadLayout.
+     *
+     * @see #setEnableReducedMotion(boolean)
+     */
+    public interface ReducedMotionHeadLayout {
+        /**
+         * @param reducedMotion Whether the headview should show static indicators
+         *                      instead of its animations.
+         */
+        void onReducedMotionChanged(boolean reducedMotion);
+    }
+
     /**
      * Refresh state
      */
@@ -1221,22 +2734,4 @@ public class CustomSwipeRefreshLayout extends ViewGroup {
                     percent + ", top = " + headerTop + ", trigger = " + trigger + "]";
         }
     }
-
-    /**
-     * Simple AnimationListener to avoid having to implement unneeded methods in
-     * AnimationListeners.
-     */
-    private class BaseAnimationListener implements AnimationListener {
-        @Override
-        public void onAnimationStart(Animation animation) {
-        }
-
-        @Override
-        public void onAnimationEnd(Animation animation) {
-        }
-
-        @Override
-        public void onAnimationRepeat(Animation animation) {
-        }
-    }
 }
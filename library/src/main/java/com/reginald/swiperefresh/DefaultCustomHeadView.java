@@ -1,6 +1,7 @@
 package com.reginald.swiperefresh;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -27,7 +28,8 @@ import java.util.Date;
  * You can also make your own head view layout which must implement
  * CustomSwipeRefreshHeadview.CustomSwipeRefreshHeadLayout interface.
  */
-public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRefreshLayout.CustomSwipeRefreshHeadLayout {
+public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRefreshLayout.CustomSwipeRefreshHeadLayout,
+        CustomSwipeRefreshLayout.ReducedMotionHeadLayout {
 
     private LinearLayout mContainer;
 
@@ -35,11 +37,18 @@ public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRe
     private TextView mSubTextView;
     private ImageView mImageView;
     private ProgressBar mProgressBar;
+    private Drawable mArrowDrawable;
+    // a frame of the spinner that is never started, null until needed
+    private Drawable mStillSpinnerDrawable;
 
     private Animation mRotateUpAnim;
     private Animation mRotateDownAnim;
     private final int ROTATE_ANIM_DURATION = 180;
     private Animation.AnimationListener animationListener;
+    // without motion, the arrow turns at once and a still frame of the spinner is shown
+    // in its place while refreshing
+    private boolean mReducedMotion;
+    private int mStateCode = State.STATE_NORMAL;
 
     public DefaultCustomHeadView(Context context) {
         super(context);
@@ -57,6 +66,7 @@ public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRe
         mMainTextView = (TextView) findViewById(R.id.default_header_textview);
         mSubTextView = (TextView) findViewById(R.id.default_header_time);
         mProgressBar = (ProgressBar) findViewById(R.id.default_header_progressbar);
+        mArrowDrawable = mImageView.getDrawable();
 
         setupAnimation();
 
@@ -82,6 +92,7 @@ public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRe
         if (stateCode == lastStateCode) {
             return;
         }
+        mStateCode = stateCode;
         if (stateCode == CustomSwipeRefreshLayout.State.STATE_COMPLETE) {
             mImageView.clearAnimation();
             mImageView.setVisibility(View.INVISIBLE);
@@ -89,10 +100,10 @@ public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRe
         } else if (stateCode == CustomSwipeRefreshLayout.State.STATE_REFRESHING) {
             // show progress
             mImageView.clearAnimation();
-            mImageView.setVisibility(View.INVISIBLE);
-            mProgressBar.setVisibility(View.VISIBLE);
+            showRefreshingIndicator();
         } else {
             // show arrow
+            mImageView.setImageDrawable(mArrowDrawable);
             mImageView.setVisibility(View.VISIBLE);
             mProgressBar.setVisibility(View.INVISIBLE);
         }
@@ -127,6 +138,48 @@ public class DefaultCustomHeadView extends LinearLayout implements CustomSwipeRe
         }
     }
 
+    @Override
+    public void onReducedMotionChanged(boolean reducedMotion) {
+        mReducedMotion = reducedMotion;
+        final int duration = reducedMotion ? 0 : ROTATE_ANIM_DURATION;
+        mRotateUpAnim.setDuration(duration);
+        mRotateDownAnim.setDuration(duration);
+        if (mStateCode == State.STATE_REFRESHING) {
+            showRefreshingIndicator();
+        }
+    }
+
+    /**
+     * Show the spinner, or without motion a still frame of it in place of the arrow,
+     * so that the head still shows that it is refreshing.
+     */
+    private void showRefreshingIndicator() {
+        if (mReducedMotion) {
+            mImageView.setImageDrawable(getStillSpinnerDrawable());
+            mImageView.setVisibility(View.VISIBLE);
+            mProgressBar.setVisibility(View.INVISIBLE);
+        } else {
+            mImageView.setImageDrawable(mArrowDrawable);
+            mImageView.setVisibility(View.INVISIBLE);
+            mProgressBar.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * @return a copy of the drawable of the spinner, which only turns once started,
+     * or the arrow if the spinner cannot be copied or has no size of its own.
+     */
+    private Drawable getStillSpinnerDrawable() {
+        if (mStillSpinnerDrawable == null) {
+            final Drawable spinner = mProgressBar.getIndeterminateDrawable();
+            final Drawable.ConstantState state = spinner != null ? spinner.getConstantState() : null;
+            final Drawable copy = state != null ? state.newDrawable(getResources()) : null;
+            mStillSpinnerDrawable = copy != null && copy.getIntrinsicWidth() > 0
+                    && copy.getIntrinsicHeight() > 0 ? copy : mArrowDrawable;
+        }
+        return mStillSpinnerDrawable;
+    }
+
     public void updateData() {
 
         String time = fetchData();
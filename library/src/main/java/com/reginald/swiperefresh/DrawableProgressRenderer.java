@@ -0,0 +1,175 @@
+package com.reginald.swiperefresh;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+
+
+/**
+ * Progress bar that runs an animatable drawable, by default the indeterminate
+ * horizontal progress drawable of the theme, tinted with the first color.
+ * <p/>
+ * The drawable is added to the overlay of the parent while running, so it is drawn
+ * and invalidated on its own. On Material themes it is an AnimatedVectorDrawable,
+ * which is animated on the RenderThread from API 25, so the bar keeps moving while
+ * the main thread is busy. Before running, the trigger is drawn like the default bar.
+ * <p/>
+ * Only available on API 21 and above, see {@link #create(View)}.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+final class DrawableProgressRenderer implements ProgressRenderer {
+
+    // Color of the trigger when no color is set, the first default color of the default bar.
+    private static final int DEFAULT_TRIGGER_COLOR = 0xB3000000;
+
+    private static final int[] INDETERMINATE_ATTRS = new int[]{android.R.attr.indeterminateDrawable};
+
+    private final View mParent;
+    private final Drawable mDrawable;
+    private final Paint mPaint = new Paint();
+    private final Rect mBounds = new Rect();
+    private float mTriggerPercentage;
+    private int mColor1;
+    private boolean mRunning;
+    private boolean mReducedMotion;
+
+    private DrawableProgressRenderer(View parent, Drawable drawable) {
+        mParent = parent;
+        mDrawable = drawable;
+    }
+
+    /**
+     * @return a renderer for the indeterminate horizontal progress drawable of the
+     * theme of the parent, or null below API 21 or if that drawable does not animate.
+     */
+    static DrawableProgressRenderer create(View parent) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return null;
+        }
+        final Context context = parent.getContext();
+        final TypedArray a = context.obtainStyledAttributes(null, INDETERMINATE_ATTRS,
+                android.R.attr.progressBarStyleHorizontal, 0);
+        final Drawable drawable = a.getDrawable(0);
+        a.recycle();
+        if (!(drawable instanceof Animatable)) {
+            return null;
+        }
+        // the drawable state is shared with every progress bar of the theme
+        return new DrawableProgressRenderer(parent, drawable.mutate());
+    }
+
+    @Override
+    public void setColorScheme(int color1, int color2, int color3, int color4) {
+        // a color of 0 keeps the color of the theme
+        mColor1 = color1;
+        if (color1 != 0) {
+            mDrawable.setTint(color1);
+        }
+    }
+
+    @Override
+    public void setTriggerPercentage(float triggerPercentage) {
+        if (mTriggerPercentage == triggerPercentage) {
+            return;
+        }
+        mTriggerPercentage = triggerPercentage;
+        ViewCompat.postInvalidateOnAnimation(mParent,
+                mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+    }
+
+    @Override
+    public void setReducedMotion(boolean reducedMotion) {
+        if (mReducedMotion == reducedMotion) {
+            return;
+        }
+        mReducedMotion = reducedMotion;
+        if (mRunning) {
+            if (reducedMotion) {
+                stopDrawable();
+            } else {
+                startDrawable();
+            }
+            mParent.invalidate(mBounds);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!mRunning) {
+            mTriggerPercentage = 0;
+            mRunning = true;
+            if (mReducedMotion) {
+                mParent.invalidate(mBounds);
+            } else {
+                startDrawable();
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mRunning) {
+            mTriggerPercentage = 0;
+            mRunning = false;
+            if (mReducedMotion) {
+                mParent.invalidate(mBounds);
+            } else {
+                stopDrawable();
+            }
+        }
+    }
+
+    private void startDrawable() {
+        mDrawable.setBounds(mBounds);
+        mParent.getOverlay().add(mDrawable);
+        ((Animatable) mDrawable).start();
+    }
+
+    private void stopDrawable() {
+        ((Animatable) mDrawable).stop();
+        mParent.getOverlay().remove(mDrawable);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mBounds.isEmpty()) {
+            return;
+        }
+        mPaint.setColor(mColor1 != 0 ? mColor1 : DEFAULT_TRIGGER_COLOR);
+        if (mRunning) {
+            if (mReducedMotion) {
+                // a static bar instead of the drawable
+                canvas.drawRect(mBounds, mPaint);
+            }
+            return;
+        }
+        if (mTriggerPercentage <= 0) {
+            return;
+        }
+        final int cx = mBounds.left + mBounds.width() / 2;
+        final int cy = mBounds.top + mBounds.height() / 2;
+        int restoreCount = canvas.save();
+        canvas.clipRect(mBounds);
+        canvas.drawCircle(cx, cy, cx * mTriggerPercentage, mPaint);
+        canvas.restoreToCount(restoreCount);
+    }
+
+    @Override
+    public void setBounds(int left, int top, int right, int bottom) {
+        mBounds.set(left, top, right, bottom);
+        mDrawable.setBounds(mBounds);
+    }
+}
@@ -0,0 +1,112 @@
+package com.reginald.swiperefresh;
+
+import android.view.animation.Interpolator;
+
+
+/**
+ * A small animator stepped once per display frame by a FrameClock, its time is
+ * the frame time, so it samples the same timestamp as the other animations of the
+ * frame. Unlike an Animation, it
+ * is not attached to any view, so it does not go through the transformation pipeline
+ * of the animated content, its callback moves whatever it animates directly.
+ */
+final class FrameAnimator implements FrameClock.Callback {
+
+    /**
+     * Receives the progress of a FrameAnimator.
+     */
+    interface Callback {
+        /**
+         * @param interpolatedTime the interpolated progress, from 0 to 1
+         */
+        void onAnimationUpdate(float interpolatedTime);
+
+        /**
+         * Called once the animation ran to its end, not when it is cancelled.
+         */
+        void onAnimationEnd();
+    }
+
+    private final FrameClock mClock;
+    private Callback mCallback;
+    private Interpolator mInterpolator;
+    // time of the first frame, in ns, -1 until it is drawn
+    private long mStartTime;
+    private long mDuration;
+    private boolean mRunning;
+    // changes with every start and cancel, so that a stale frame does nothing
+    private int mGeneration;
+
+    FrameAnimator(FrameClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Start the animation from its first frame, an animation still running is
+     * cancelled first.
+     *
+     * @param duration     duration of the animation, in ms
+     * @param interpolator interpolator of the progress, null for a linear one
+     * @param callback     receives the progress
+     */
+    void start(long duration, Interpolator interpolator, Callback callback) {
+        cancel();
+        mDuration = duration * 1000000;
+        mInterpolator = interpolator;
+        mCallback = callback;
+        // the animation starts on its first frame, whenever the frame comes
+        mStartTime = -1;
+        mRunning = true;
+        mClock.postFrameCallback(this);
+    }
+
+    /**
+     * Stop the animation where it is, without calling onAnimationEnd().
+     *
+     * @return Whether the animation was running.
+     */
+    boolean cancel() {
+        mGeneration++;
+        if (!mRunning) {
+            return false;
+        }
+        mRunning = false;
+        mCallback = null;
+        mClock.removeFrameCallback(this);
+        return true;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mStartTime < 0) {
+            mStartTime = frameTimeNanos;
+        }
+        final long elapsed = frameTimeNanos - mStartTime;
+        final float fraction = mDuration > 0 ? Math.min(1f, (float) elapsed / mDuration) : 1f;
+        final float interpolatedTime = mInterpolator != null ?
+                mInterpolator.getInterpolation(fraction) : fraction;
+
+        final int generation = mGeneration;
+        final Callback callback = mCallback;
+        callback.onAnimationUpdate(interpolatedTime);
+        if (generation != mGeneration) {
+            // cancelled or restarted by the callback
+            return;
+        }
+
+        if (fraction < 1f) {
+            mClock.postFrameCallback(this);
+        } else {
+            mRunning = false;
+            mCallback = null;
+            callback.onAnimationEnd();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.reginald.swiperefresh;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.ArrayList;
+
+
+/**
+ * Steps the animations of a view once per display frame. On API 16 and above the
+ * frames come from the Choreographer, and every callback of a frame receives the
+ * same vsync timestamp, in ns, so that everything drawn in one frame is computed
+ * for the same time. Below API 16 the frames are posted with
+ * ViewCompat.postOnAnimation() and stamped with System.nanoTime().
+ * <p/>
+ * Like Choreographer.postFrameCallback(), a callback runs once for the next frame
+ * and has to be posted again to run on the following one.
+ * <p/>
+ * The clock can be paused while nobody can see the host. No frame is requested
+ * then, and the paused time is left out of the frame times, so that every animation
+ * resumes where it was paused.
+ */
+final class FrameClock {
+
+    /**
+     * Called once on the next frame.
+     */
+    interface Callback {
+        /**
+         * @param frameTimeNanos time of the frame, in the System.nanoTime() time base
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    private final View mHost;
+    private final ArrayList<Callback> mCallbacks = new ArrayList<Callback>();
+    // callbacks of the frame being dispatched
+    private Callback[] mFrameCallbacks = new Callback[4];
+    private int mFrameCallbackCount;
+    private boolean mInFrame;
+    private long mFrameTimeNanos;
+    private boolean mFrameScheduled;
+    private Object mChoreographerCallback;
+    private boolean mPaused;
+    private long mPauseStartNanos;
+    // time spent paused, left out of the frame times
+    private long mPausedNanos;
+    private long mLastFrameTimeNanos;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    };
+
+    FrameClock(View host) {
+        mHost = host;
+    }
+
+    /**
+     * @return the time of the frame being dispatched, or the current time outside
+     * of a frame, in ns.
+     */
+    long now() {
+        if (mInFrame) {
+            return mFrameTimeNanos;
+        }
+        return (mPaused ? mPauseStartNanos : System.nanoTime()) - mPausedNanos;
+    }
+
+    /**
+     * Stop or restart the frames. The callbacks posted while the clock is paused run
+     * on the first frame after it restarts.
+     */
+    void setPaused(boolean paused) {
+        if (mPaused == paused) {
+            return;
+        }
+        mPaused = paused;
+        if (paused) {
+            mPauseStartNanos = System.nanoTime();
+        } else {
+            mPausedNanos += System.nanoTime() - mPauseStartNanos;
+            if (!mCallbacks.isEmpty()) {
+                scheduleFrame();
+            }
+        }
+    }
+
+    boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * @return Whether a callback waits for the next frame.
+     */
+    boolean hasCallbacks() {
+        return !mCallbacks.isEmpty();
+    }
+
+    /**
+     * Run the callback once on the next frame, a callback that is already posted
+     * is not posted twice.
+     */
+    void postFrameCallback(Callback callback) {
+        if (!mCallbacks.contains(callback)) {
+            mCallbacks.add(callback);
+        }
+        if (!mPaused) {
+            scheduleFrame();
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                if (mChoreographerCallback == null) {
+                    mChoreographerCallback = new ChoreographerCallback(this);
+                }
+                ((ChoreographerCallback) mChoreographerCallback).post();
+            } else {
+                ViewCompat.postOnAnimation(mHost, mFrameRunnable);
+            }
+        }
+    }
+
+    void removeFrameCallback(Callback callback) {
+        mCallbacks.remove(callback);
+        for (int i = 0; i < mFrameCallbackCount; i++) {
+            if (mFrameCallbacks[i] == callback) {
+                mFrameCallbacks[i] = null;
+            }
+        }
+        // the scheduled frame does nothing when no callback is left
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (mPaused || mCallbacks.isEmpty()) {
+            return;
+        }
+        // the vsync of the first frame after a pause may be older than the restart
+        frameTimeNanos = Math.max(frameTimeNanos - mPausedNanos, mLastFrameTimeNanos);
+        mLastFrameTimeNanos = frameTimeNanos;
+        final int count = mCallbacks.size();
+        if (mFrameCallbacks.length < count) {
+            mFrameCallbacks = new Callback[count * 2];
+        }
+        mCallbacks.toArray(mFrameCallbacks);
+        mFrameCallbackCount = count;
+        mCallbacks.clear();
+
+        mInFrame = true;
+        mFrameTimeNanos = frameTimeNanos;
+        for (int i = 0; i < count; i++) {
+            final Callback callback = mFrameCallbacks[i];
+            mFrameCallbacks[i] = null;
+            if (callback != null) {
+                callback.doFrame(frameTimeNanos);
+            }
+        }
+        mFrameCallbackCount = 0;
+        mInFrame = false;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class ChoreographerCallback implements Choreographer.FrameCallback {
+        private final FrameClock mClock;
+
+        ChoreographerCallback(FrameClock clock) {
+            mClock = clock;
+        }
+
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mClock.doFrame(frameTimeNanos);
+        }
+    }
+}
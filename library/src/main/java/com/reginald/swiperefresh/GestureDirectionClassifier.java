@@ -0,0 +1,84 @@
+package com.reginald.swiperefresh;
+
+
+/**
+ * Decides once per gesture whether it is a horizontal or a vertical one. Nothing
+ * is decided before the finger moved further than the touch slop. Past the slop, a
+ * clearly horizontal or vertical angle decides right away, an angle in between
+ * waits for a few more samples and is then decided by the dominant axis. Once
+ * decided, the axis stays locked until the next gesture.
+ */
+final class GestureDirectionClassifier {
+
+    static final int AXIS_UNDECIDED = 0;
+    static final int AXIS_HORIZONTAL = 1;
+    static final int AXIS_VERTICAL = 2;
+
+    // horizontal when the x distance is larger than this ratio of the y distance
+    private static final float HORIZONTAL_RATIO = 2f;
+
+    // vertical when the y distance is larger than this ratio of the x distance
+    private static final float VERTICAL_RATIO = 1f;
+
+    // ratio deciding between both axis once the sample window is used up
+    private static final float DOMINANT_RATIO = 1.5f;
+
+    // maximum number of samples past the touch slop before the axis is forced
+    private static final int MAX_UNDECIDED_SAMPLES = 3;
+
+    private final int mTouchSlopSquare;
+    private float mDownX;
+    private float mDownY;
+    private int mUndecidedSamples;
+    private int mAxis = AXIS_UNDECIDED;
+
+    GestureDirectionClassifier(int touchSlop) {
+        mTouchSlopSquare = touchSlop * touchSlop;
+    }
+
+    /**
+     * Start classifying a new gesture.
+     */
+    void reset(float downX, float downY) {
+        mDownX = downX;
+        mDownY = downY;
+        mUndecidedSamples = 0;
+        mAxis = AXIS_UNDECIDED;
+    }
+
+    /**
+     * Lock the axis of the current gesture.
+     */
+    void lock(int axis) {
+        mAxis = axis;
+    }
+
+    int getAxis() {
+        return mAxis;
+    }
+
+    /**
+     * Add one sample of the current gesture.
+     *
+     * @return the axis of the gesture, AXIS_UNDECIDED if it is not known yet
+     */
+    int addSample(float x, float y) {
+        if (mAxis != AXIS_UNDECIDED) {
+            return mAxis;
+        }
+        final float xDiff = Math.abs(x - mDownX);
+        final float yDiff = Math.abs(y - mDownY);
+        if (xDiff * xDiff + yDiff * yDiff <= mTouchSlopSquare) {
+            return AXIS_UNDECIDED;
+        }
+
+        if (xDiff > yDiff * HORIZONTAL_RATIO) {
+            mAxis = AXIS_HORIZONTAL;
+        } else if (yDiff >= xDiff * VERTICAL_RATIO) {
+            mAxis = AXIS_VERTICAL;
+        } else if (++mUndecidedSamples >= MAX_UNDECIDED_SAMPLES) {
+            mAxis = xDiff > yDiff * DOMINANT_RATIO ? AXIS_HORIZONTAL : AXIS_VERTICAL;
+        }
+        return mAxis;
+    }
+}
@@ -0,0 +1,90 @@
+package com.reginald.swiperefresh;
+
+import android.view.animation.Interpolator;
+
+import java.util.HashMap;
+
+
+/**
+ * An interpolator that reads its curve from a table of values sampled at regular
+ * intervals between 0 and 1, and interpolates linearly between them. Inputs out of
+ * [0, 1] are clamped. Tables for the accelerate and decelerate curves of the
+ * framework are built once per factor and shared.
+ */
+class LookupTableInterpolator implements Interpolator {
+
+    // number of values of the generated tables, as for the progress bar curve
+    private static final int TABLE_SIZE = 101;
+
+    private static final HashMap<Float, LookupTableInterpolator> sAccelerateCache =
+            new HashMap<Float, LookupTableInterpolator>();
+    private static final HashMap<Float, LookupTableInterpolator> sDecelerateCache =
+            new HashMap<Float, LookupTableInterpolator>();
+
+    private final float[] mValues;
+    private final float mStepSize;
+
+    /**
+     * @param values values of the curve sampled with x at regular intervals between
+     *               0 and 1, at least 2 of them
+     */
+    LookupTableInterpolator(float[] values) {
+        mValues = values;
+        mStepSize = 1.0f / (values.length - 1);
+    }
+
+    /**
+     * @return the curve of an AccelerateInterpolator with the given factor.
+     */
+    static synchronized LookupTableInterpolator accelerate(float factor) {
+        LookupTableInterpolator interpolator = sAccelerateCache.get(factor);
+        if (interpolator == null) {
+            final float[] values = new float[TABLE_SIZE];
+            for (int i = 0; i < TABLE_SIZE; i++) {
+                final double input = (double) i / (TABLE_SIZE - 1);
+                values[i] = (float) Math.pow(input, 2 * factor);
+            }
+            interpolator = new LookupTableInterpolator(values);
+            sAccelerateCache.put(factor, interpolator);
+        }
+        return interpolator;
+    }
+
+    /**
+     * @return the curve of a DecelerateInterpolator with the given factor.
+     */
+    static synchronized LookupTableInterpolator decelerate(float factor) {
+        LookupTableInterpolator interpolator = sDecelerateCache.get(factor);
+        if (interpolator == null) {
+            final float[] values = new float[TABLE_SIZE];
+            for (int i = 0; i < TABLE_SIZE; i++) {
+                final double input = (double) i / (TABLE_SIZE - 1);
+                values[i] = (float) (1 - Math.pow(1 - input, 2 * factor));
+            }
+            interpolator = new LookupTableInterpolator(values);
+            sDecelerateCache.put(factor, interpolator);
+        }
+        return interpolator;
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input >= 1.0f) {
+            return 1.0f;
+        }
+
+        if (input <= 0f) {
+            return 0f;
+        }
+
+        int position = Math.min(
+                (int) (input * (mValues.length - 1)),
+                mValues.length - 2);
+
+        float quantized = position * mStepSize;
+        float difference = input - quantized;
+        float weight = difference / mStepSize;
+
+        return mValues[position] + weight * (mValues[position + 1] - mValues[position]);
+    }
+}
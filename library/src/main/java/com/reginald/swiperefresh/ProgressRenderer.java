@@ -0,0 +1,57 @@
+package com.reginald.swiperefresh;
+
+import android.graphics.Canvas;
+
+
+/**
+ * Draws the top progress bar of a CustomSwipeRefreshLayout. Before running, the bar
+ * indicates how close the user is to triggering a refresh, then it shows an
+ * indeterminate animation while refreshing.
+ *
+ * @see CustomSwipeProgressBar
+ * @see DrawableProgressRenderer
+ */
+interface ProgressRenderer {
+
+    /**
+     * Set the four colors used in the progress animation. The first color is also
+     * the color of the bar that grows in response to a user swipe gesture.
+     */
+    void setColorScheme(int color1, int color2, int color3, int color4);
+
+    /**
+     * Update the progress the user has made toward triggering the swipe gesture.
+     */
+    void setTriggerPercentage(float triggerPercentage);
+
+    /**
+     * Show a static bar instead of the progress animation, and skip the animation
+     * that clears it when it stops.
+     */
+    void setReducedMotion(boolean reducedMotion);
+
+    /**
+     * Start showing the progress animation.
+     */
+    void start();
+
+    /**
+     * Stop showing the progress animation.
+     */
+    void stop();
+
+    /**
+     * @return Return whether the progress animation is currently running.
+     */
+    boolean isRunning();
+
+    /**
+     * Draw the bar on the canvas of the parent, after its children.
+     */
+    void draw(Canvas canvas);
+
+    /**
+     * Set the drawing bounds of the bar, in the coordinates of the parent.
+     */
+    void setBounds(int left, int top, int right, int bottom);
+}
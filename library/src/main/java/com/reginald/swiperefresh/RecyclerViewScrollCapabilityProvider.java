@@ -0,0 +1,71 @@
+package com.reginald.swiperefresh;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import com.reginald.swiperefresh.CustomSwipeRefreshLayout.ScrollCapabilityProvider;
+
+import java.util.Map;
+
+
+/**
+ * Probes a RecyclerView with its LayoutManager: a vertical LinearLayoutManager
+ * (and GridLayoutManager) is at the top when its first child is the first item
+ * and is not scrolled past the top padding. Other layouts use the generic probe.
+ * <p/>
+ * RecyclerView is an optional dependency, this class fails to load with a
+ * NoClassDefFoundError when it is not available. It is referenced by its class,
+ * not by its name, so that it still matches when the app is obfuscated.
+ */
+final class RecyclerViewScrollCapabilityProvider implements ScrollCapabilityProvider {
+
+    private static final RecyclerViewScrollCapabilityProvider INSTANCE =
+            new RecyclerViewScrollCapabilityProvider();
+
+    /**
+     * @throws NoClassDefFoundError if the app does not ship RecyclerView
+     */
+    static void register(Map<Class<?>, ScrollCapabilityProvider> providers) {
+        providers.put(RecyclerView.class, INSTANCE);
+    }
+
+    private RecyclerViewScrollCapabilityProvider() {
+    }
+
+    static boolean isRecyclerView(View view) {
+        return view instanceof RecyclerView;
+    }
+
+    /**
+     * @param velocityY in px/s, positive to scroll the content down
+     * @return Whether the view is a RecyclerView that started a fling.
+     */
+    static boolean fling(View view, int velocityY) {
+        return view instanceof RecyclerView && ((RecyclerView) view).fling(0, velocityY);
+    }
+
+    @Override
+    public boolean canScrollUp(View view) {
+        final RecyclerView recyclerView = (RecyclerView) view;
+        final RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            final LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+            if (linearLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL &&
+                    !linearLayoutManager.getReverseLayout()) {
+                if (recyclerView.getChildCount() == 0) {
+                    return false;
+                }
+                final View firstChild = recyclerView.getChildAt(0);
+                return layoutManager.getPosition(firstChild) > 0 ||
+                        firstChild.getTop() < recyclerView.getPaddingTop();
+            }
+        }
+        return ScrollCapabilityRegistry.DEFAULT_PROVIDER.canScrollUp(view);
+    }
+
+    @Override
+    public boolean canScrollHorizontally(View view, int direction) {
+        return ScrollCapabilityRegistry.DEFAULT_PROVIDER.canScrollHorizontally(view, direction);
+    }
+}
@@ -0,0 +1,108 @@
+package com.reginald.swiperefresh;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+import android.provider.Settings;
+
+
+/**
+ * Follows the system settings that ask for less motion: an animator duration
+ * scale of 0 in the developer options or the accessibility settings (API 17 and
+ * above), and the battery saver (API 21 and above).
+ * <p/>
+ * The battery saver is followed with a broadcast while started. The animator
+ * duration scale has no broadcast, it is read again by {@link #update()}.
+ */
+final class ReducedMotionMonitor {
+
+    /**
+     * Called when the system starts or stops asking for less motion.
+     */
+    interface Listener {
+        void onReducedMotionChanged(boolean reducedMotion);
+    }
+
+    private final Context mContext;
+    private final Listener mListener;
+    private boolean mReducedMotion;
+    private boolean mStarted;
+
+    private final BroadcastReceiver mPowerSaveReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            update();
+        }
+    };
+
+    ReducedMotionMonitor(Context context, Listener listener) {
+        mContext = context.getApplicationContext();
+        mListener = listener;
+    }
+
+    /**
+     * Start following the battery saver, and read the settings.
+     */
+    void start() {
+        if (!mStarted) {
+            mStarted = true;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                mContext.registerReceiver(mPowerSaveReceiver,
+                        new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+            }
+        }
+        update();
+    }
+
+    /**
+     * Stop following the battery saver, the last state is kept.
+     */
+    void stop() {
+        if (mStarted) {
+            mStarted = false;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                mContext.unregisterReceiver(mPowerSaveReceiver);
+            }
+        }
+    }
+
+    /**
+     * Read the settings again, and notify the listener if the result changed.
+     */
+    void update() {
+        final boolean reducedMotion = isAnimatorDurationScaleZero() || isPowerSaveMode();
+        if (mReducedMotion != reducedMotion) {
+            mReducedMotion = reducedMotion;
+            mListener.onReducedMotionChanged(reducedMotion);
+        }
+    }
+
+    /**
+     * @return Whether the system asked for less motion at the last update.
+     */
+    boolean isReducedMotion() {
+        return mReducedMotion;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private boolean isAnimatorDurationScaleZero() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return false;
+        }
+        return Settings.Global.getFloat(mContext.getContentResolver(),
+                Settings.Global.ANIMATOR_DURATION_SCALE, 1f) == 0f;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private boolean isPowerSaveMode() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        final PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+}
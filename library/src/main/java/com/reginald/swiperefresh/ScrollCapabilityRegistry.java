@@ -0,0 +1,223 @@
+package com.reginald.swiperefresh;
+
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPager;
+import android.util.Log;
+import android.view.View;
+import android.webkit.WebView;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+import com.reginald.swiperefresh.CustomSwipeRefreshLayout.ScrollCapabilityProvider;
+
+import java.util.HashMap;
+
+
+/**
+ * Registry of the {@link ScrollCapabilityProvider}s used to probe whether a view
+ * can scroll. Providers are registered for a view class and apply to its
+ * subclasses too. The provider resolved for a view class is cached after the
+ * first lookup, so probing a view is a map hit plus the check of the provider.
+ * <p/>
+ * The built-in providers and the providers they resolve to are shared by all the
+ * registries, only the layouts with providers of their own keep a cache of their
+ * own. Like the views, the registries are only used on the main thread.
+ */
+final class ScrollCapabilityRegistry {
+
+    private static final String TAG = CustomSwipeRefreshLayout.TAG;
+
+    private static final String NESTED_SCROLL_VIEW_CLASS = "android.support.v4.widget.NestedScrollView";
+
+    /**
+     * Generic probe used for views without a more specific provider.
+     */
+    static final ScrollCapabilityProvider DEFAULT_PROVIDER = new ScrollCapabilityProvider() {
+        @Override
+        public boolean canScrollUp(View view) {
+            if (android.os.Build.VERSION.SDK_INT < 14) {
+                return view.getScrollY() > 0;
+            }
+            return ViewCompat.canScrollVertically(view, -1);
+        }
+
+        @Override
+        public boolean canScrollHorizontally(View view, int direction) {
+            if (android.os.Build.VERSION.SDK_INT < 14) {
+                return view.getScrollX() * direction > 0;
+            }
+            return ViewCompat.canScrollHorizontally(view, direction);
+        }
+    };
+
+    /**
+     * Lists are at the top when their first item is the first child and is not
+     * scrolled past the top padding.
+     */
+    static final ScrollCapabilityProvider ABS_LIST_VIEW_PROVIDER = new ScrollCapabilityProvider() {
+        @Override
+        public boolean canScrollUp(View view) {
+            final AbsListView absListView = (AbsListView) view;
+            return absListView.getChildCount() > 0
+                    && (absListView.getFirstVisiblePosition() > 0 || absListView.getChildAt(0)
+                    .getTop() < absListView.getPaddingTop());
+        }
+
+        @Override
+        public boolean canScrollHorizontally(View view, int direction) {
+            return false;
+        }
+    };
+
+    /**
+     * ScrollView and NestedScrollView scroll their content with the scroll
+     * position of the view.
+     */
+    static final ScrollCapabilityProvider SCROLL_VIEW_PROVIDER = new ScrollCapabilityProvider() {
+        @Override
+        public boolean canScrollUp(View view) {
+            return view.getScrollY() > 0;
+        }
+
+        @Override
+        public boolean canScrollHorizontally(View view, int direction) {
+            return false;
+        }
+    };
+
+    static final ScrollCapabilityProvider WEB_VIEW_PROVIDER = new ScrollCapabilityProvider() {
+        @Override
+        public boolean canScrollUp(View view) {
+            return view.getScrollY() > 0;
+        }
+
+        @Override
+        public boolean canScrollHorizontally(View view, int direction) {
+            return DEFAULT_PROVIDER.canScrollHorizontally(view, direction);
+        }
+    };
+
+    static final ScrollCapabilityProvider VIEW_PAGER_PROVIDER = new ScrollCapabilityProvider() {
+        @Override
+        public boolean canScrollUp(View view) {
+            return false;
+        }
+
+        @Override
+        public boolean canScrollHorizontally(View view, int direction) {
+            return ((ViewPager) view).canScrollHorizontally(direction);
+        }
+    };
+
+    // built-in providers for a view class
+    private static final HashMap<Class<?>, ScrollCapabilityProvider> sBuiltInProviders =
+            new HashMap<Class<?>, ScrollCapabilityProvider>();
+
+    // built-in providers resolved for the classes of the probed views
+    private static final HashMap<Class<?>, ScrollCapabilityProvider> sResolvedBuiltInProviders =
+            new HashMap<Class<?>, ScrollCapabilityProvider>();
+
+    private static final boolean sHasRecyclerView;
+
+    static {
+        sBuiltInProviders.put(AbsListView.class, ABS_LIST_VIEW_PROVIDER);
+        sBuiltInProviders.put(ScrollView.class, SCROLL_VIEW_PROVIDER);
+        sBuiltInProviders.put(WebView.class, WEB_VIEW_PROVIDER);
+        sBuiltInProviders.put(ViewPager.class, VIEW_PAGER_PROVIDER);
+        // added to support-v4 after the version this library is compiled with
+        Class<?> nestedScrollViewClass = findClass(NESTED_SCROLL_VIEW_CLASS);
+        if (nestedScrollViewClass != null) {
+            sBuiltInProviders.put(nestedScrollViewClass, SCROLL_VIEW_PROVIDER);
+        }
+        boolean hasRecyclerView = false;
+        try {
+            RecyclerViewScrollCapabilityProvider.register(sBuiltInProviders);
+            hasRecyclerView = true;
+        } catch (NoClassDefFoundError e) {
+            // RecyclerView is a provided dependency, the app does not ship it
+        }
+        sHasRecyclerView = hasRecyclerView;
+    }
+
+    // providers registered for a view class by the layout
+    private final HashMap<Class<?>, ScrollCapabilityProvider> mProviders =
+            new HashMap<Class<?>, ScrollCapabilityProvider>();
+
+    // providers resolved for the classes of the probed views, when the layout registered some
+    private final HashMap<Class<?>, ScrollCapabilityProvider> mResolvedProviders =
+            new HashMap<Class<?>, ScrollCapabilityProvider>();
+
+    private static Class<?> findClass(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Whether the app ships RecyclerView, RecyclerViewScrollCapabilityProvider
+     * can only be used if it does.
+     */
+    static boolean hasRecyclerView() {
+        return sHasRecyclerView;
+    }
+
+    void register(Class<? extends View> viewClass, ScrollCapabilityProvider provider) {
+        mProviders.put(viewClass, provider);
+        mResolvedProviders.clear();
+    }
+
+    void unregister(Class<? extends View> viewClass) {
+        mProviders.remove(viewClass);
+        mResolvedProviders.clear();
+    }
+
+    /**
+     * @return the provider registered for the class of the view or for its
+     * closest registered superclass, or {@link #DEFAULT_PROVIDER}.
+     */
+    ScrollCapabilityProvider get(View view) {
+        final Class<?> viewClass = view.getClass();
+        final HashMap<Class<?>, ScrollCapabilityProvider> resolvedProviders =
+                mProviders.isEmpty() ? sResolvedBuiltInProviders : mResolvedProviders;
+        ScrollCapabilityProvider provider = resolvedProviders.get(viewClass);
+        if (provider == null) {
+            provider = resolve(viewClass);
+            resolvedProviders.put(viewClass, provider);
+            if (CustomSwipeRefreshLayout.DEBUG)
+                Log.d(TAG, "resolved scroll capability provider for " + viewClass.getName());
+        }
+        return provider;
+    }
+
+    /**
+     * @return Whether the view scrolls vertically: its provider is a vertical probe,
+     * i.e. a built-in one but the ViewPager one, or one registered by the layout, or
+     * the generic probe finds it scrollable up or down.
+     */
+    boolean scrollsVertically(View view) {
+        final ScrollCapabilityProvider provider = get(view);
+        if (provider == DEFAULT_PROVIDER) {
+            return ViewCompat.canScrollVertically(view, -1) || ViewCompat.canScrollVertically(view, 1);
+        }
+        return provider != VIEW_PAGER_PROVIDER;
+    }
+
+    /**
+     * @return the provider of the closest class, a provider registered by the
+     * layout wins over a built-in one for the same class.
+     */
+    private ScrollCapabilityProvider resolve(Class<?> viewClass) {
+        for (Class<?> c = viewClass; c != null; c = c.getSuperclass()) {
+            ScrollCapabilityProvider provider = mProviders.get(c);
+            if (provider == null) {
+                provider = sBuiltInProviders.get(c);
+            }
+            if (provider != null) {
+                return provider;
+            }
+        }
+        return DEFAULT_PROVIDER;
+    }
+}
@@ -0,0 +1,102 @@
+package com.reginald.swiperefresh;
+
+import android.view.animation.Interpolator;
+
+
+/**
+ * Interpolates the motion of a damped spring pulling a view from its start
+ * position to its end position. The duration is not fixed, it is the time the
+ * spring needs to come to rest within a threshold from the end position, so a
+ * short distance settles sooner than a long one. Call {@link #setUp} before every
+ * animation, then animate for {@link #getDuration()} ms.
+ */
+final class SpringInterpolator implements Interpolator {
+
+    // step of the search for the rest time, in s
+    private static final float REST_SEARCH_STEP = 1 / 120f;
+
+    // the search for the rest time gives up after this time, in s
+    private static final float MAX_DURATION = 5f;
+
+    private float mStiffness;
+    private float mDampingRatio;
+    // initial velocity relative to the distance, in 1/s
+    private float mVelocity;
+    private long mDuration;
+
+    /**
+     * @param stiffness    stiffness of the spring, in 1/s^2
+     * @param dampingRatio damping ratio of the spring, 1 for a critically damped spring
+     * @param distance     distance between the start and the end position, in px
+     * @param velocity     initial velocity toward the end position, in px/s
+     * @param threshold    distance from the end position at which the spring is at rest, in px
+     */
+    void setUp(float stiffness, float dampingRatio, float distance, float velocity, float threshold) {
+        mStiffness = stiffness;
+        mDampingRatio = dampingRatio;
+        distance = Math.abs(distance);
+        if (distance <= threshold || stiffness <= 0 || dampingRatio <= 0) {
+            mVelocity = 0;
+            mDuration = 0;
+            return;
+        }
+        mVelocity = velocity / distance;
+
+        // the spring is at rest once it stays within the threshold over a step
+        final float restDisplacement = threshold / distance;
+        float t = 0;
+        float displacement = 1;
+        while (t < MAX_DURATION) {
+            final float next = displacement(t + REST_SEARCH_STEP);
+            if (Math.abs(displacement) < restDisplacement && Math.abs(next) < restDisplacement) {
+                break;
+            }
+            t += REST_SEARCH_STEP;
+            displacement = next;
+        }
+        mDuration = (long) (t * 1000);
+    }
+
+    /**
+     * @return the time the spring needs to come to rest, in ms.
+     */
+    long getDuration() {
+        return mDuration;
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input >= 1f || mDuration == 0) {
+            return 1f;
+        }
+        return 1f - displacement(input * mDuration / 1000f);
+    }
+
+    /**
+     * @param t time since the start, in s
+     * @return the displacement from the end position relative to the distance,
+     * 1 at the start.
+     */
+    private float displacement(float t) {
+        final double omega = Math.sqrt(mStiffness);
+        // the velocity moves toward the end position, which decreases the displacement
+        final double v0 = -mVelocity;
+        if (Math.abs(mDampingRatio - 1) < 1e-3) {
+            // critically damped
+            return (float) ((1 + (v0 + omega) * t) * Math.exp(-omega * t));
+        } else if (mDampingRatio < 1) {
+            // under damped, oscillates around the end position
+            final double omegaD = omega * Math.sqrt(1 - mDampingRatio * mDampingRatio);
+            return (float) (Math.exp(-mDampingRatio * omega * t) *
+                    (Math.cos(omegaD * t) + (v0 + mDampingRatio * omega) / omegaD * Math.sin(omegaD * t)));
+        } else {
+            // over damped
+            final double root = omega * Math.sqrt(mDampingRatio * mDampingRatio - 1);
+            final double r1 = -mDampingRatio * omega + root;
+            final double r2 = -mDampingRatio * omega - root;
+            final double c1 = (v0 - r2) / (r1 - r2);
+            final double c2 = 1 - c1;
+            return (float) (c1 * Math.exp(r1 * t) + c2 * Math.exp(r2 * t));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.reginald.swiperefresh;
+
+
+/**
+ * Estimates the velocity and the deceleration of a swipe from its most recent
+ * position samples. Samples are kept in a fixed-size ring buffer of primitives,
+ * so adding samples and estimating never allocates.
+ */
+final class SwipeVelocityEstimator {
+
+    // Number of samples kept in the ring buffer.
+    private static final int HISTORY_SIZE = 8;
+
+    // Samples older than this are ignored, in ms.
+    private static final long HORIZON_MS = 100;
+
+    // Samples separated by a pause longer than this belong to a previous movement, in ms.
+    private static final long ASSUME_STOPPED_MS = 40;
+
+    private final long[] mTimes = new long[HISTORY_SIZE];
+    private final float[] mPositions = new float[HISTORY_SIZE];
+    private int mIndex;
+    private int mCount;
+
+    // Result of the last estimate, velocity in px/ms and acceleration in px/ms^2.
+    private float mVelocity;
+    private float mAcceleration;
+
+    /**
+     * Forget all samples.
+     */
+    void clear() {
+        mIndex = 0;
+        mCount = 0;
+        mVelocity = 0;
+        mAcceleration = 0;
+    }
+
+    /**
+     * Add one position sample.
+     *
+     * @param time     sample time, in ms
+     * @param position sample position, in px
+     */
+    void addSample(long time, float position) {
+        if (mCount > 0 && time - mTimes[mIndex] > ASSUME_STOPPED_MS) {
+            clear();
+        }
+        mIndex = (mIndex + 1) % HISTORY_SIZE;
+        mTimes[mIndex] = time;
+        mPositions[mIndex] = position;
+        if (mCount < HISTORY_SIZE) {
+            mCount++;
+        }
+    }
+
+    /**
+     * @param now current time, in ms
+     * @return Whether the swipe did not move for a while, or has no samples.
+     */
+    boolean isStopped(long now) {
+        return mCount == 0 || now - mTimes[mIndex] > ASSUME_STOPPED_MS;
+    }
+
+    /**
+     * Fit the recent samples with a quadratic p(t) = a + b * t + c * t^2 by least
+     * squares (a line when there are too few samples), with t relative to the
+     * newest sample.
+     *
+     * @return false if there are not enough samples for an estimate
+     */
+    boolean computeEstimate() {
+        mVelocity = 0;
+        mAcceleration = 0;
+        if (mCount < 2) {
+            return false;
+        }
+
+        final long newestTime = mTimes[mIndex];
+        final float newestPosition = mPositions[mIndex];
+        // sums of t^k and of p * t^k
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double sp0 = 0, sp1 = 0, sp2 = 0;
+        int used = 0;
+        for (int i = 0; i < mCount; i++) {
+            int index = (mIndex - i + HISTORY_SIZE) % HISTORY_SIZE;
+            double t = mTimes[index] - newestTime;
+            if (-t > HORIZON_MS) {
+                break;
+            }
+            double p = mPositions[index] - newestPosition;
+            double t2 = t * t;
+            s0 += 1;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            sp0 += p;
+            sp1 += p * t;
+            sp2 += p * t2;
+            used++;
+        }
+        if (used < 2) {
+            return false;
+        }
+
+        if (used >= 3) {
+            // solve the normal equations with Cramer's rule
+            double det = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s2 * s3) + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(det) > 1e-6) {
+                double detB = s0 * (sp1 * s4 - s3 * sp2) - sp0 * (s1 * s4 - s2 * s3) + s2 * (s1 * sp2 - sp1 * s2);
+                double detC = s0 * (s2 * sp2 - sp1 * s3) - s1 * (s1 * sp2 - sp1 * s2) + sp0 * (s1 * s3 - s2 * s2);
+                mVelocity = (float) (detB / det);
+                mAcceleration = (float) (2 * detC / det);
+                return true;
+            }
+        }
+
+        double det = s0 * s2 - s1 * s1;
+        if (Math.abs(det) <= 1e-6) {
+            return false;
+        }
+        mVelocity = (float) ((s0 * sp1 - s1 * sp0) / det);
+        return true;
+    }
+
+    /**
+     * @return the velocity of the last estimate, in px/ms.
+     */
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * @return the acceleration of the last estimate, in px/ms^2.
+     */
+    float getAcceleration() {
+        return mAcceleration;
+    }
+
+    /**
+     * Predict how much further the swipe goes within the given time based on the
+     * last estimate. A swipe that decelerates stops where its velocity reaches 0,
+     * an accelerating swipe is extrapolated with its current velocity only.
+     *
+     * @param lookAheadMs time to look ahead, in ms
+     * @return the predicted distance, in px
+     */
+    float predictDistance(long lookAheadMs) {
+        float t = lookAheadMs;
+        if (mAcceleration * mVelocity < 0) {
+            t = Math.min(t, -mVelocity / mAcceleration);
+            return mVelocity * t + 0.5f * mAcceleration * t * t;
+        }
+        return mVelocity * t;
+    }
+}